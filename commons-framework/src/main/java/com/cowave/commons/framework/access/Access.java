@@ -13,16 +13,20 @@ import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import cn.hutool.core.net.NetUtil;
 import com.alibaba.ttl.TransmittableThreadLocal;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.cowave.commons.framework.access.filter.AccessIdGenerator;
+import com.cowave.commons.framework.access.filter.AccessResponseWrapper;
 import com.cowave.commons.framework.access.security.AccessInfo;
 import com.cowave.commons.framework.access.security.AccessUserDetails;
 import com.cowave.commons.tools.ServletUtils;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -67,8 +71,21 @@ public class Access {
 
     private boolean responseLogged;
 
+    private String requestLogFormat;
+
+    private Object[] requestLogArgs;
+
+    private AccessResponseWrapper responseWrapper;
+
     private Map<String, Object> requestParam = new HashMap<>();
 
+    /**
+     * 请求内的方法调用结果（@RequestMemo），异步任务通过TTL共享同一个Access，所以需要线程安全
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile ConcurrentHashMap<Object, Object> memo;
+
     public Access(boolean accessFiltered, String accessId, String accessIp, String accessUrl, String accessMethod, Long accessTime){
         this.accessFiltered = accessFiltered;
         this.accessId = accessId;
@@ -108,6 +125,33 @@ public class Access {
         ACCESS.remove();
     }
 
+    /**
+     * 请求内的方法调用结果缓存，第一次使用时创建
+     */
+    public ConcurrentHashMap<Object, Object> memo(){
+        ConcurrentHashMap<Object, Object> current = memo;
+        if(current == null){
+            synchronized (this){
+                current = memo;
+                if(current == null){
+                    current = new ConcurrentHashMap<>();
+                    memo = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 清除请求内的方法调用结果缓存
+     */
+    public void clearMemo(){
+        ConcurrentHashMap<Object, Object> current = memo;
+        if(current != null){
+            current.clear();
+        }
+    }
+
     /**
      * 请求对应的权限标识
      */
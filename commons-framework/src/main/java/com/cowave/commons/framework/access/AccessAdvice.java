@@ -201,7 +201,10 @@ public class AccessAdvice {
     }
 
     private HttpResponse<Response<Void>> error(Exception e, int httpStatus, String code, int errLevel, String message) {
-        // 异常日志
+        // 异常日志（先输出延迟的请求日志）
+        if(errLevel >= ERR_LEVEL_1){
+            accessLogger.flushRequest();
+        }
         if(errLevel >= ERR_LEVEL_2){
             AccessLogger.error("", e);
         }else if(errLevel == ERR_LEVEL_1 && e.getMessage() != null){
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access;
+
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 注解中的SpEL表达式缓存
+ * <p> 按表达式文本缓存解析后的Expression（与方法无关，多个方法上相同的表达式共用一份），使用MIXED编译模式，
+ * 多次执行后编译成字节码，变量类型变化导致编译后的代码执行失败时退回解释执行；
+ * <p> 方法参数名也按方法缓存，不再每次解析
+ *
+ * @author shanhuiming
+ */
+public final class AccessExpressions {
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, AccessExpressions.class.getClassLoader()));
+
+    private static final TemplateParserContext TEMPLATE_CONTEXT = new TemplateParserContext();
+
+    private static final ConcurrentHashMap<ExpressionKey, Expression> EXPRESSIONS = new ConcurrentHashMap<>();
+
+    private static final ParameterNameDiscoverer PARAMETER_NAMES = new CachedParameterNameDiscoverer();
+
+    private AccessExpressions() {
+
+    }
+
+    /**
+     * 普通表达式，如 #bean.method(#arg)
+     */
+    public static Expression expression(String expr) {
+        return EXPRESSIONS.computeIfAbsent(new ExpressionKey(expr, false), k -> PARSER.parseExpression(expr));
+    }
+
+    /**
+     * 模板表达式，如 用户#{#user.name}
+     */
+    public static Expression template(String expr) {
+        return EXPRESSIONS.computeIfAbsent(new ExpressionKey(expr, true),
+                k -> PARSER.parseExpression(expr, TEMPLATE_CONTEXT));
+    }
+
+    /**
+     * 以方法参数为变量的上下文，参数在第一次访问变量时才设置
+     */
+    public static MethodBasedEvaluationContext context(Method method, Object[] args) {
+        return new MethodBasedEvaluationContext(null, method, args, PARAMETER_NAMES);
+    }
+
+    public static String[] parameterNames(Method method) {
+        return PARAMETER_NAMES.getParameterNames(method);
+    }
+
+    private record ExpressionKey(String expr, boolean template) {
+
+    }
+
+    private static class CachedParameterNameDiscoverer implements ParameterNameDiscoverer {
+
+        private static final String[] NONE = new String[0];
+
+        private final ParameterNameDiscoverer discoverer = new DefaultParameterNameDiscoverer();
+
+        private final ConcurrentHashMap<Method, String[]> names = new ConcurrentHashMap<>();
+
+        @Override
+        public String[] getParameterNames(Method method) {
+            String[] paramNames = names.computeIfAbsent(method, m -> {
+                String[] discovered = discoverer.getParameterNames(m);
+                return discovered != null ? discovered : NONE;
+            });
+            return paramNames == NONE ? null : paramNames;
+        }
+
+        @Override
+        public String[] getParameterNames(Constructor<?> ctor) {
+            return discoverer.getParameterNames(ctor);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 访问日志队列
+ * <p> 请求线程只记录日志事件（格式 + 参数），由后台线程批量格式化和输出；
+ * <p> 需要Jackson序列化的参数在请求线程中先写成TokenBuffer（字段值的拷贝，不做文本编码），后台线程再编码成json，
+ * 所以参数对象在请求结束后被修改或复用也不会影响日志内容；
+ * <p> 队列是有界无锁的环形缓冲（多生产者/单消费者），队列满时根据neverBlock丢弃或阻塞等待
+ *
+ * @author shanhuiming
+ */
+public class AccessLogQueue {
+
+    static final int DEBUG = 10;
+
+    static final int INFO = 20;
+
+    static final int WARN = 30;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final long DROPPED_REPORT_INTERVAL = 10000;
+
+    private final boolean async;
+
+    private final boolean neverBlock;
+
+    private final int batchSize;
+
+    private final int mask;
+
+    private final AtomicReferenceArray<Event> buffer;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread consumer;
+
+    private volatile boolean running;
+
+    private volatile boolean consumerParked;
+
+    // 只在消费线程中修改
+    private volatile long head;
+
+    // 以下只在消费线程中访问
+    private long droppedReported;
+
+    private long droppedReportTime;
+
+    public AccessLogQueue(boolean async, int queueSize, int batchSize, boolean neverBlock) {
+        this.async = async;
+        this.neverBlock = neverBlock;
+        this.batchSize = Math.max(batchSize, 1);
+        int capacity = Integer.highestOneBit(Math.max(queueSize, 2) - 1) << 1;
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        if (async) {
+            this.running = true;
+            this.consumer = new Thread(this::consume, "access-logger");
+            this.consumer.setDaemon(true);
+            this.consumer.start();
+        } else {
+            this.consumer = null;
+        }
+    }
+
+    /**
+     * 延迟序列化的参数，异步时在入队前写成TokenBuffer快照，在输出时才编码成json
+     */
+    public static Object json(ObjectWriter writer, Object value) {
+        return new JsonArg(writer, value);
+    }
+
+    public void debug(String format, Object... arguments) {
+        if (AccessLogger.isDebugEnabled()) {
+            publish(DEBUG, format, arguments);
+        }
+    }
+
+    public void info(String format, Object... arguments) {
+        if (AccessLogger.isInfoEnabled()) {
+            publish(INFO, format, arguments);
+        }
+    }
+
+    public void warn(String format, Object... arguments) {
+        if (AccessLogger.isWarnEnabled()) {
+            publish(WARN, format, arguments);
+        }
+    }
+
+    /**
+     * 队列满时丢弃的日志数
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 队列中待输出的日志数（近似值）
+     */
+    public int size() {
+        if (!async) {
+            return 0;
+        }
+        return (int) Math.max(0, Math.min(tail.get() - head, mask + 1L));
+    }
+
+    /**
+     * 队列容量
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public void shutdown() {
+        if (!async || !running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(int level, String format, Object[] arguments) {
+        Event event = new Event(level, MDC.get("accessId"), format, arguments);
+        if (!async) {
+            output(event);
+            return;
+        }
+
+        if (arguments != null) {
+            for (Object argument : arguments) {
+                if (argument instanceof JsonArg jsonArg) {
+                    jsonArg.snapshot();
+                }
+            }
+        }
+
+        while (!offer(event)) {
+            if (neverBlock || !running) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private boolean offer(Event event) {
+        long pos = tail.get();
+        for (;;) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, event);
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // 已满
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    private Event poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Event event = buffer.get(index);
+        buffer.lazySet(index, null);
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return event;
+    }
+
+    private void consume() {
+        Event[] batch = new Event[batchSize];
+        while (running || sequences.get((int) (head & mask)) == head + 1) {
+            int count = 0;
+            Event event;
+            while (count < batchSize && (event = poll()) != null) {
+                batch[count++] = event;
+            }
+
+            if (count == 0) {
+                consumerParked = true;
+                if (running && sequences.get((int) (head & mask)) != head + 1) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                consumerParked = false;
+                continue;
+            }
+
+            for (int i = 0; i < count; i++) {
+                try {
+                    output(batch[i]);
+                } catch (Exception e) {
+                    AccessLogger.error("", e);
+                }
+                batch[i] = null;
+            }
+            MDC.remove("accessId");
+            reportDropped();
+        }
+        MDC.remove("accessId");
+    }
+
+    private void reportDropped() {
+        long droppedCount = dropped.sum();
+        long now = System.currentTimeMillis();
+        if (droppedCount > droppedReported && now - droppedReportTime >= DROPPED_REPORT_INTERVAL) {
+            AccessLogger.warn("access log queue full, {} logs dropped", droppedCount - droppedReported);
+            droppedReported = droppedCount;
+            droppedReportTime = now;
+        }
+    }
+
+    private void output(Event event) {
+        if (async) {
+            if (event.accessId != null) {
+                MDC.put("accessId", event.accessId);
+            } else {
+                MDC.remove("accessId");
+            }
+        }
+
+        Object[] arguments = event.arguments;
+        if (arguments != null) {
+            for (int i = 0; i < arguments.length; i++) {
+                if (arguments[i] instanceof JsonArg jsonArg) {
+                    arguments[i] = jsonArg.write();
+                }
+            }
+        }
+
+        switch (event.level) {
+            case DEBUG -> AccessLogger.debug(event.format, arguments);
+            case WARN -> AccessLogger.warn(event.format, arguments);
+            default -> AccessLogger.info(event.format, arguments);
+        }
+    }
+
+    private static class Event {
+
+        private final int level;
+
+        private final String accessId;
+
+        private final String format;
+
+        private final Object[] arguments;
+
+        Event(int level, String accessId, String format, Object[] arguments) {
+            this.level = level;
+            this.accessId = accessId;
+            this.format = format;
+            this.arguments = arguments;
+        }
+    }
+
+    private static class JsonArg {
+
+        private final ObjectWriter writer;
+
+        private Object value;
+
+        // 快照失败时的文本
+        private String text;
+
+        JsonArg(ObjectWriter writer, Object value) {
+            this.writer = writer;
+            this.value = value;
+        }
+
+        /**
+         * 在请求线程中拷贝参数，之后不再引用原对象
+         */
+        void snapshot() {
+            if (value == null || value instanceof TokenBuffer) {
+                return;
+            }
+            TokenBuffer tokens = new TokenBuffer(null, false);
+            try {
+                writer.writeValue(tokens, value);
+                value = tokens;
+            } catch (IOException e) {
+                text = String.valueOf(value);
+                value = null;
+            }
+        }
+
+        String write() {
+            if (text != null) {
+                return text;
+            }
+            try {
+                return writer.writeValueAsString(value);
+            } catch (JsonProcessingException e) {
+                return String.valueOf(value);
+            }
+        }
+    }
+}
@@ -15,8 +15,8 @@ import javax.servlet.http.HttpServletResponse;
 import com.cowave.commons.client.http.response.HttpResponse;
 import com.cowave.commons.client.http.response.Response;
 import com.cowave.commons.framework.access.filter.AccessIdGenerator;
+import com.cowave.commons.framework.access.filter.AccessResponseWrapper;
 import com.cowave.commons.framework.access.security.AccessInfoSetter;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.aspectj.lang.JoinPoint;
@@ -48,6 +48,10 @@ public class AccessLogger {
 
     private final ObjectMapper objectMapper;
 
+    private final AccessLogQueue accessLogQueue;
+
+    private final AccessSampler accessSampler;
+
     @Pointcut("@annotation(org.springframework.web.bind.annotation.RequestMapping) " +
             "|| @annotation(org.springframework.web.bind.annotation.GetMapping) " +
             "|| @annotation(org.springframework.web.bind.annotation.PostMapping) " +
@@ -97,8 +101,18 @@ public class AccessLogger {
         }
     }
 
+    /**
+     * 输出异常日志之前，先输出因采样而延迟的请求日志
+     */
+    public void flushRequest() {
+        Access access = Access.get();
+        if (access != null && access.isAccessFiltered()) {
+            accessSampler.flushRequest(access);
+        }
+    }
+
     @AfterReturning(pointcut = "request()", returning = "resp")
-    public void logResponse(Object resp) throws JsonProcessingException {
+    public void logResponse(Object resp) {
         HttpServletResponse servletResponse = Access.httpResponse();
 
         // 非Servlet忽略
@@ -139,56 +153,82 @@ public class AccessLogger {
             }
         }
 
+        // 采样
+        boolean failed = response != null ? !Objects.equals(code, SUCCESS.getCode()) : status != HttpStatus.OK.value();
+        if (!accessSampler.sample(access, status, failed, cost)) {
+            return;
+        }
+
         if (resp == null || !LOGGER.isDebugEnabled()) {
             if (response != null) {
                 // Response
                 if (Objects.equals(code, SUCCESS.getCode())) {
-                    LOGGER.info("<< {} {}ms {code={}, msg={}}", status, cost, code, msg);
+                    accessLogQueue.info("<< {} {}ms {code={}, msg={}}", status, cost, code, msg);
                 } else {
                     if (!LOGGER.isInfoEnabled()) {
-                        LOGGER.warn("<< {} {}ms {code={}, msg={}} {} {}", status, cost, code, msg, access.getAccessUrl(), objectMapper.writeValueAsString(access.getRequestParam()));
+                        accessLogQueue.warn("<< {} {}ms {code={}, msg={}} {} {}", status, cost, code, msg, access.getAccessUrl(), json(access.getRequestParam()));
                     } else {
-                        LOGGER.warn("<< {} {}ms {code={}, msg={}}", status, cost, code, msg);
+                        accessLogQueue.warn("<< {} {}ms {code={}, msg={}}", status, cost, code, msg);
                     }
                 }
             } else if (httpResponse != null) {
                 // HttpResponse
                 if (status == HttpStatus.OK.value()) {
-                    LOGGER.info("<< {} {}ms {}", status, cost, msg);
+                    accessLogQueue.info("<< {} {}ms {}", status, cost, msg);
                 } else {
                     if (!LOGGER.isInfoEnabled()) {
-                        LOGGER.warn("<< {} {}ms {} {} {}", status, cost, msg, access.getAccessUrl(), objectMapper.writeValueAsString(access.getRequestParam()));
+                        accessLogQueue.warn("<< {} {}ms {} {} {}", status, cost, msg, access.getAccessUrl(), json(access.getRequestParam()));
                     } else {
-                        LOGGER.warn("<< {} {}ms {}", status, cost, msg);
+                        accessLogQueue.warn("<< {} {}ms {}", status, cost, msg);
                     }
                 }
             } else {
                 // Others
                 if (status == HttpStatus.OK.value()) {
-                    LOGGER.info("<< {} {}ms", status, cost);
+                    accessLogQueue.info("<< {} {}ms", status, cost);
                 } else {
                     if (!LOGGER.isInfoEnabled()) {
-                        LOGGER.warn("<< {} {}ms {} {}", status, cost, access.getAccessUrl(), objectMapper.writeValueAsString(access.getRequestParam()));
+                        accessLogQueue.warn("<< {} {}ms {} {}", status, cost, access.getAccessUrl(), json(access.getRequestParam()));
                     } else {
-                        LOGGER.info("<< {} {}ms", status, cost);
+                        accessLogQueue.info("<< {} {}ms", status, cost);
                     }
                 }
             }
         } else {
-            if (response != null) {
-                LOGGER.debug("<< {} {}ms {code={}, msg={}, data={}}", status, cost, code, msg, objectMapper.writeValueAsString(data));
+            AccessResponseWrapper responseWrapper = access.getResponseWrapper();
+            if (responseWrapper != null) {
+                // 等响应写出后，直接打印写出的内容
+                responseWrapper.deferLog("<< {} {}ms {}", status, cost);
+            } else if (response != null) {
+                accessLogQueue.debug("<< {} {}ms {code={}, msg={}, data={}}", status, cost, code, msg, json(data));
             } else if (httpResponse != null) {
-                LOGGER.debug("<< {} {}ms {}", status, cost, objectMapper.writeValueAsString(data));
+                accessLogQueue.debug("<< {} {}ms {}", status, cost, json(data));
             } else {
-                LOGGER.debug("<< {} {}ms {}", status, cost, objectMapper.writeValueAsString(resp));
+                accessLogQueue.debug("<< {} {}ms {}", status, cost, json(resp));
             }
         }
     }
 
+    private Object json(Object value) {
+        return AccessLogQueue.json(objectMapper.writer(), value);
+    }
+
+    public static boolean isDebugEnabled() {
+        return LOGGER.isDebugEnabled();
+    }
+
     public static boolean isInfoEnabled() {
         return LOGGER.isInfoEnabled();
     }
 
+    public static boolean isWarnEnabled() {
+        return LOGGER.isWarnEnabled();
+    }
+
+    public static void debug(String format, Object... arguments) {
+        LOGGER.debug(format, arguments);
+    }
+
     public static void info(String format, Object... arguments) {
         LOGGER.info(format, arguments);
     }
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access;
+
+import java.lang.annotation.*;
+
+/**
+ * 指定接口的重要程度，用于过载时的请求拒绝
+ *
+ * @author shanhuiming
+ *
+ */
+@Documented
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AccessPriority {
+
+    Criticality value() default Criticality.DEFAULT;
+}
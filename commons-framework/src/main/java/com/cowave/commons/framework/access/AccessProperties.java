@@ -9,6 +9,8 @@
  */
 package com.cowave.commons.framework.access;
 
+import com.cowave.commons.framework.access.limit.LimitAlgorithm;
+import com.cowave.commons.framework.access.operation.OperationSink;
 import com.cowave.commons.framework.access.security.AccessUser;
 import com.cowave.commons.framework.access.security.AuthMode;
 import lombok.Data;
@@ -17,6 +19,7 @@ import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.cowave.commons.framework.access.security.AuthMode.BASIC;
@@ -54,6 +57,36 @@ public class AccessProperties {
      */
     private CrossControl cross = new CrossControl();
 
+    /**
+     * 访问日志配置
+     */
+    private LogConfig log = new LogConfig();
+
+    /**
+     * 网关透传用户信息配置
+     */
+    private PayloadConfig payload = new PayloadConfig();
+
+    /**
+     * 接口限流配置
+     */
+    private LimitConfig limit = new LimitConfig();
+
+    /**
+     * 过载保护配置
+     */
+    private ShedConfig shed = new ShedConfig();
+
+    /**
+     * 租户公平调度配置
+     */
+    private TenantConfig tenant = new TenantConfig();
+
+    /**
+     * 操作日志批量处理配置
+     */
+    private OperationConfig operation = new OperationConfig();
+
     /**
      * Access鉴权配置
      */
@@ -88,6 +121,14 @@ public class AccessProperties {
          return Optional.ofNullable(auth).map(auth -> auth.basicWithConfigUser).orElse(false);
     }
 
+    public int basicCacheSize(){
+        return Optional.ofNullable(auth).map(auth -> auth.basicCacheSize).orElse(0);
+    }
+
+    public long basicCacheExpire(){
+        return Optional.ofNullable(auth).map(auth -> auth.basicCacheExpire).orElse(30L);
+    }
+
     public List<AccessUser> accessUsers(){
         return Optional.ofNullable(auth).map(auth -> auth.users).orElse(List.of(AccessUser.defaultUser()));
     }
@@ -116,6 +157,22 @@ public class AccessProperties {
         return Optional.ofNullable(auth).map(auth -> auth.refreshSecret).orElse("refresh@cowave.com");
     }
 
+    public int tokenCacheSize(){
+        return Optional.ofNullable(auth).map(auth -> auth.tokenCacheSize).orElse(10000);
+    }
+
+    public long tokenCacheExpire(){
+        return Optional.ofNullable(auth).map(auth -> auth.tokenCacheExpire).orElse(300L);
+    }
+
+    public long revokeSyncInterval(){
+        return Optional.ofNullable(auth).map(auth -> auth.revokeSyncInterval).orElse(2L);
+    }
+
+    public boolean permitDigest(){
+        return Optional.ofNullable(auth).map(auth -> auth.permitDigest).orElse(false);
+    }
+
     public String oauthAppId(){
         return Optional.ofNullable(oauth).map(oauth -> oauth.appId).orElse(null);
     }
@@ -160,6 +217,253 @@ public class AccessProperties {
         private boolean allowCredentials = true;
     }
 
+    @Data
+    public static class LogConfig {
+
+        /**
+         * 是否异步输出访问日志（请求线程只记录日志事件，由后台线程批量格式化输出）
+         */
+        private boolean async = false;
+
+        /**
+         * 异步队列大小（向上取2的幂）
+         */
+        private int queueSize = 4096;
+
+        /**
+         * 后台线程每批次最多输出的日志数
+         */
+        private int batchSize = 256;
+
+        /**
+         * 队列满时丢弃日志，否则阻塞请求线程直到队列有空位
+         */
+        private boolean neverBlock = true;
+
+        /**
+         * debug级别时，响应日志记录的响应内容最大字节数
+         */
+        private int responseLimit = 2048;
+
+        /**
+         * 访问日志采样
+         */
+        private SampleConfig sample = new SampleConfig();
+    }
+
+    @Data
+    public static class SampleConfig {
+
+        /**
+         * 是否开启访问日志采样（失败或慢请求总是记录）
+         */
+        private boolean enable = false;
+
+        /**
+         * 默认采样比例（0~1）
+         */
+        private double rate = 1.0;
+
+        /**
+         * 最小采样比例，自动降低时不会低于此值
+         */
+        private double minRate = 0.01;
+
+        /**
+         * 慢请求阈值(ms)
+         */
+        private long slowThreshold = 1000;
+
+        /**
+         * 日志队列使用率超过此值时，采样比例减半
+         */
+        private double queueThreshold = 0.5;
+
+        /**
+         * 每秒请求数超过此值时，按比例降低采样比例（0表示不限制）
+         */
+        private long requestThreshold = 0;
+
+        /**
+         * 按url和状态类别的采样规则，按顺序匹配
+         */
+        private List<SampleRule> rules;
+    }
+
+    @Data
+    public static class SampleRule {
+
+        /**
+         * 匹配的url（ant风格）
+         */
+        private String[] urls;
+
+        /**
+         * 匹配的状态类别，比如2表示2xx（0表示全部）
+         */
+        private int statusClass;
+
+        /**
+         * 采样比例（0~1）
+         */
+        private double rate = 1.0;
+    }
+
+    @Data
+    public static class PayloadConfig {
+
+        /**
+         * 解析后的用户信息缓存数量（0表示不缓存）
+         */
+        private int cacheSize = 10000;
+
+        /**
+         * 解析后的用户信息缓存时长(s)，不超过payload中的exp
+         */
+        private long cacheExpire = 300;
+    }
+
+    @Data
+    public static class OperationConfig {
+
+        /**
+         * 队列大小
+         */
+        private int queueSize = 10000;
+
+        /**
+         * 每批处理的最大数量
+         */
+        private int batchSize = 200;
+
+        /**
+         * 批量处理的最大间隔(ms)
+         */
+        private long flushInterval = 1000;
+
+        /**
+         * 关闭时等待队列处理完成的时长(ms)
+         */
+        private long shutdownTimeout = 5000;
+
+        /**
+         * 入参、返回值快照的最大长度（json），采集时超过即停止序列化，编码后截断，小于等于0不限制
+         */
+        private int argsMaxSize = 4096;
+
+        /**
+         * 队列满时的处理（drop、caller-runs、block）
+         */
+        private OperationSink.Overflow overflow = OperationSink.Overflow.DROP;
+    }
+
+    @Data
+    public static class TenantConfig {
+
+        /**
+         * 是否开启租户公平调度
+         */
+        private boolean enable = false;
+
+        /**
+         * 总的并发上限（应小于servlet工作线程数）
+         */
+        private int maxConcurrency = 150;
+
+        /**
+         * 单个租户的并发上限
+         */
+        private int tenantConcurrency = 30;
+
+        /**
+         * 单个租户的排队上限
+         */
+        private int queueSize = 50;
+
+        /**
+         * 排队超时(ms)
+         */
+        private long queueTimeout = 1000;
+
+        /**
+         * 租户权重（默认1）
+         */
+        private Map<String, Integer> weights;
+
+        /**
+         * 按租户区分指标的租户数上限，超出的租户合并到tenant=other（0表示不按租户区分）
+         */
+        private int metricsTenants = 100;
+    }
+
+    @Data
+    public static class ShedConfig {
+
+        /**
+         * 是否开启过载时按接口重要程度拒绝请求
+         */
+        private boolean enable = false;
+
+        /**
+         * 处理中的请求数上限，达到后拒绝DEFAULT和SHEDDABLE接口
+         */
+        private int maxInflight = 200;
+
+        /**
+         * 处理中的请求数达到上限的这个比例后，拒绝SHEDDABLE接口
+         */
+        private double sheddableRatio = 0.8;
+
+        /**
+         * 平均耗时超过这个值(ms)时，拒绝SHEDDABLE接口（0表示不检查）
+         */
+        private long latencyThreshold = 0;
+
+        /**
+         * 拒绝时响应的Retry-After(s)
+         */
+        private int retryAfter = 1;
+
+        /**
+         * CRITICAL接口的url
+         */
+        private String[] criticalUrls = {"/actuator/**"};
+
+        /**
+         * SHEDDABLE接口的url
+         */
+        private String[] sheddableUrls;
+    }
+
+    @Data
+    public static class LimitConfig {
+
+        /**
+         * Redis限流算法（gcra、sliding-window、lease）
+         */
+        private LimitAlgorithm algorithm = LimitAlgorithm.GCRA;
+
+        /**
+         * lease：每次租用剩余额度的比例，越小在限制附近越准确，Redis调用也越多
+         */
+        private double leaseRatio = 0.1;
+
+        /**
+         * lease：每次租用的许可上限
+         */
+        private long leaseBatch = 100;
+
+        /**
+         * lease：限流key空闲多久后淘汰(s)，空闲淘汰时不归还未用完的许可
+         */
+        private long leaseIdle = 60;
+
+        /**
+         * lease：节点上保存租约的限流key数量上限，超出时淘汰并归还许可
+         */
+        private long leaseMaxKeys = 100000;
+    }
+
     @Data
     public static class AuthConfig {
 
@@ -198,6 +502,16 @@ public class AccessProperties {
          */
         private boolean basicWithConfigUser = false;
 
+        /**
+         * basic认证通过的凭据缓存数量（0表示不缓存）
+         */
+        private int basicCacheSize = 0;
+
+        /**
+         * basic认证通过的凭据缓存时长(s)
+         */
+        private long basicCacheExpire = 30;
+
         /**
          * Token保存方式（header、cookie）
          */
@@ -227,6 +541,26 @@ public class AccessProperties {
          * refreshToken密钥
          */
         private String refreshSecret = "refresh@cowave.com";
+
+        /**
+         * 已校验的accessToken缓存数量（0表示不缓存）
+         */
+        private int tokenCacheSize = 10000;
+
+        /**
+         * 已校验的accessToken缓存时长(s)，不超过token的exp
+         */
+        private long tokenCacheExpire = 300;
+
+        /**
+         * 从Redis同步注销记录的间隔(s)，其它实例上的注销最多延迟这么久生效
+         */
+        private long revokeSyncInterval = 2;
+
+        /**
+         * 令牌中只携带角色和权限的摘要，完整集合保存在Redis（权限较多时可以显著减小令牌）
+         */
+        private boolean permitDigest = false;
     }
 
     @Data
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access;
+
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 访问日志采样
+ * <p> 失败或慢请求总是记录，成功的快请求按url和状态类别配置的比例采样；
+ * <p> 当日志队列积压或请求速率超过阈值时自动降低采样比例，采样比例会记录在请求日志中（sample=），用于修正日志统计
+ * <p> 请求日志延迟到响应时输出，如果处理中要输出异常日志，则先通过flushRequest输出请求日志
+ *
+ * @author shanhuiming
+ */
+public class AccessSampler {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final AccessProperties.SampleConfig sampleConfig;
+
+    private final AccessLogQueue accessLogQueue;
+
+    private final LongAdder secondRequests = new LongAdder();
+
+    private final AtomicLong currentSecond = new AtomicLong();
+
+    private volatile double loadFactor = 1.0;
+
+    public AccessSampler(AccessProperties.SampleConfig sampleConfig, AccessLogQueue accessLogQueue) {
+        this.sampleConfig = sampleConfig;
+        this.accessLogQueue = accessLogQueue;
+    }
+
+    /**
+     * 记录请求日志，如果开启了采样，则延迟到响应时根据采样结果决定是否输出
+     */
+    public void logRequest(Access access, String format, Object[] arguments) {
+        if (!sampleConfig.isEnable()) {
+            accessLogQueue.info(format, arguments);
+            return;
+        }
+        access.setRequestLogFormat(format);
+        access.setRequestLogArgs(arguments);
+    }
+
+    /**
+     * 采样决策，如果采中则先输出延迟的请求日志
+     *
+     * @param failed 请求是否失败
+     * @param cost   请求耗时(ms)
+     * @return 是否输出响应日志
+     */
+    public boolean sample(Access access, int status, boolean failed, long cost) {
+        if (!sampleConfig.isEnable()) {
+            return true;
+        }
+
+        countRequest(access.getAccessTime());
+        double rate = 1.0;
+        if (!failed && cost < sampleConfig.getSlowThreshold()) {
+            rate = Math.max(sampleConfig.getMinRate(), configRate(access.getAccessUrl(), status) * loadFactor());
+            if (rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate) {
+                return false;
+            }
+        }
+
+        String format = access.getRequestLogFormat();
+        if (format != null) {
+            accessLogQueue.info(format + " sample={}", sampleArgs(access.getRequestLogArgs(), rate));
+            access.setRequestLogFormat(null);
+            access.setRequestLogArgs(null);
+        }
+        return true;
+    }
+
+    /**
+     * 输出异常日志之前调用：失败的请求总是采中，直接同步输出延迟的请求日志，保证请求日志在它的异常堆栈之前
+     */
+    public void flushRequest(Access access) {
+        String format = access.getRequestLogFormat();
+        if (format != null) {
+            AccessLogger.info(format + " sample={}", sampleArgs(access.getRequestLogArgs(), 1.0));
+            access.setRequestLogFormat(null);
+            access.setRequestLogArgs(null);
+        }
+    }
+
+    private Object[] sampleArgs(Object[] arguments, double rate) {
+        Object[] sampleArgs = Arrays.copyOf(arguments, arguments.length + 1);
+        sampleArgs[arguments.length] = rate;
+        return sampleArgs;
+    }
+
+    private double configRate(String url, int status) {
+        List<AccessProperties.SampleRule> rules = sampleConfig.getRules();
+        if (rules != null && url != null) {
+            for (AccessProperties.SampleRule rule : rules) {
+                if (rule.getStatusClass() > 0 && rule.getStatusClass() != status / 100) {
+                    continue;
+                }
+                if (matchUrl(rule.getUrls(), url)) {
+                    return rule.getRate();
+                }
+            }
+        }
+        return sampleConfig.getRate();
+    }
+
+    private boolean matchUrl(String[] urls, String url) {
+        if (urls == null || urls.length == 0) {
+            return true;
+        }
+        for (String pattern : urls) {
+            if (pathMatcher.match(pattern, url)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 请求计数，每秒根据上一秒的请求速率重新计算一次负载系数
+     */
+    private void countRequest(long accessTime) {
+        secondRequests.increment();
+        long second = accessTime / 1000;
+        long last = currentSecond.get();
+        if (second > last && currentSecond.compareAndSet(last, second)) {
+            long requests = secondRequests.sumThenReset();
+            long requestThreshold = sampleConfig.getRequestThreshold();
+            if (requestThreshold > 0 && second == last + 1 && requests > requestThreshold) {
+                loadFactor = (double) requestThreshold / requests;
+            } else {
+                loadFactor = 1.0;
+            }
+        }
+    }
+
+    /**
+     * 负载系数，日志队列积压时再减半
+     */
+    private double loadFactor() {
+        double factor = loadFactor;
+        if (accessLogQueue.size() > accessLogQueue.capacity() * sampleConfig.getQueueThreshold()) {
+            factor = factor / 2;
+        }
+        return factor;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接口耗时统计，按匹配的接口路径（而不是原始url）、请求方法和状态类别记录
+ * <p> 基于Micrometer Timer（百分位由HdrHistogram计算），每个组合的Timer在第一次访问时创建，之后记录不再产生分配
+ *
+ * @author shanhuiming
+ */
+public class AccessTimers {
+
+    public static final String METRIC_NAME = "access.requests";
+
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    // 状态类别 1xx ~ 5xx，0表示其它
+    private static final int STATUS_CLASSES = 6;
+
+    private final ConcurrentHashMap<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    public AccessTimers(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void record(HttpServletRequest request, int status, long costNanos) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern instanceof String ? (String) pattern : UNKNOWN;
+        HttpMethod method = HttpMethod.resolve(request.getMethod());
+        int methodIndex = method != null ? method.ordinal() : METHODS.length;
+        int statusClass = status / 100;
+        if (statusClass >= STATUS_CLASSES || statusClass < 0) {
+            statusClass = 0;
+        }
+
+        Timer[] uriTimers = timers.get(uri);
+        if (uriTimers == null) {
+            uriTimers = timers.computeIfAbsent(uri, k -> new Timer[(METHODS.length + 1) * STATUS_CLASSES]);
+        }
+        int index = methodIndex * STATUS_CLASSES + statusClass;
+        Timer timer = uriTimers[index];
+        if (timer == null) {
+            timer = newTimer(uri, methodIndex, statusClass);
+            uriTimers[index] = timer;
+        }
+        timer.record(costNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 按p99排序的最慢接口
+     */
+    public List<Map<String, Object>> slowest(int top) {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Timer[] uriTimers : timers.values()) {
+            for (Timer timer : uriTimers) {
+                if (timer == null || timer.count() == 0) {
+                    continue;
+                }
+                HistogramSnapshot snapshot = timer.takeSnapshot();
+                Map<String, Object> stat = new LinkedHashMap<>();
+                stat.put("uri", timer.getId().getTag("uri"));
+                stat.put("method", timer.getId().getTag("method"));
+                stat.put("status", timer.getId().getTag("status"));
+                stat.put("count", snapshot.count());
+                stat.put("mean", snapshot.mean(TimeUnit.MILLISECONDS));
+                stat.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+                for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                    stat.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+                }
+                list.add(stat);
+            }
+        }
+        list.sort(Comparator.comparingDouble(stat -> -((Number) stat.getOrDefault("p99", 0.0)).doubleValue()));
+        return top > 0 && list.size() > top ? list.subList(0, top) : list;
+    }
+
+    private synchronized Timer newTimer(String uri, int methodIndex, int statusClass) {
+        String method = methodIndex < METHODS.length ? METHODS[methodIndex].name() : "OTHER";
+        String status = statusClass > 0 ? statusClass + "xx" : UNKNOWN;
+        return Timer.builder(METRIC_NAME)
+                .description("access latency of matched handler pattern")
+                .tags("uri", uri, "method", method, "status", status)
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .percentilePrecision(2)
+                .register(meterRegistry);
+    }
+}
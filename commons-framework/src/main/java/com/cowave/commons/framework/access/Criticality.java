@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access;
+
+/**
+ * 接口的重要程度，过载时按从低到高的顺序拒绝
+ *
+ * @author shanhuiming
+ *
+ */
+public enum Criticality {
+
+    /**
+     * 关键接口（健康检查、登录等），不会被拒绝
+     */
+    CRITICAL,
+
+    /**
+     * 普通接口，并发达到上限时拒绝
+     */
+    DEFAULT,
+
+    /**
+     * 可延后的接口（批量导出、报表等），压力较大时最先拒绝
+     */
+    SHEDDABLE
+}
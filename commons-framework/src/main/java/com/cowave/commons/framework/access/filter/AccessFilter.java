@@ -12,9 +12,13 @@ package com.cowave.commons.framework.access.filter;
 import com.cowave.commons.client.http.asserts.I18Messages;
 import com.cowave.commons.client.http.response.Response;
 import com.cowave.commons.framework.access.Access;
+import com.cowave.commons.framework.access.AccessLogQueue;
 import com.cowave.commons.framework.access.AccessLogger;
 import com.cowave.commons.framework.access.AccessProperties;
+import com.cowave.commons.framework.access.AccessSampler;
+import com.cowave.commons.framework.access.AccessTimers;
 import com.cowave.commons.framework.access.security.AccessUserDetails;
+import com.cowave.commons.framework.access.security.PermitDigestCache;
 import com.cowave.commons.tools.ServletUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -48,6 +52,11 @@ import static com.cowave.commons.framework.access.security.BearerTokenService.*;
 @RequiredArgsConstructor
 public class AccessFilter implements Filter {
 
+    private static final String CLAIM_EXPIRATION = "exp";
+
+    // 过载拒绝的响应码，与状态码503对应（HttpCode中只有限流的429）
+    private static final String SERVICE_UNAVAILABLE = String.valueOf(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
     private final TransactionIdSetter transactionIdSetter;
 
     private final AccessIdGenerator accessIdGenerator;
@@ -56,8 +65,39 @@ public class AccessFilter implements Filter {
 
     private final ObjectMapper objectMapper;
 
+    private final AccessLogQueue accessLogQueue;
+
+    private final AccessSampler accessSampler;
+
+    private final AccessTimers accessTimers;
+
+    private final UserPayloadCache userPayloadCache;
+
+    private final LoadShedder loadShedder;
+
+    private final PermitDigestCache permitDigestCache;
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        long startNanos = System.nanoTime();
+        if (loadShedder == null) {
+            doAccess(request, response, chain, startNanos);
+            return;
+        }
+
+        // 过载时提前拒绝低优先级的请求
+        if (!loadShedder.enter((HttpServletRequest) request)) {
+            rejectOverload((HttpServletResponse) response);
+            return;
+        }
+        try {
+            doAccess(request, response, chain, startNanos);
+        } finally {
+            loadShedder.exit(System.nanoTime() - startNanos);
+        }
+    }
+
+    private void doAccess(ServletRequest request, ServletResponse response, FilterChain chain, long startNanos) throws IOException, ServletException {
         HttpServletRequest httpServletRequest = (HttpServletRequest) request;
         HttpServletResponse httpServletResponse = (HttpServletResponse) response;
         // X-Request-ID
@@ -77,11 +117,7 @@ public class AccessFilter implements Filter {
             httpServletResponse.setHeader(Content_Security_Policy, accessProperties.getContentSecurityPolicy());
         }
         // 设置响应头 Access-Control
-        AccessProperties.CrossControl crossControl = accessProperties.getCross();
-        httpServletResponse.setHeader(Access_Control_Allow_Origin, crossControl.getAllowOrigin());
-        httpServletResponse.setHeader(Access_Control_Allow_Methods, crossControl.getAllowMethods());
-        httpServletResponse.setHeader(Access_Control_Allow_Headers, crossControl.getAllowHeaders());
-        httpServletResponse.setHeader(Access_Control_Allow_Credentials, String.valueOf(crossControl.isAllowCredentials()));
+        setCrossHeaders(httpServletResponse);
 
         // 设置MDC.accessId
         MDC.put("accessId", accessId);
@@ -101,7 +137,7 @@ public class AccessFilter implements Filter {
         Access.set(access);
 
         // 请求参数、日志
-        AccessRequestWrapper accessRequestWrapper = new AccessRequestWrapper(httpServletRequest, objectMapper, access);
+        AccessRequestWrapper accessRequestWrapper = new AccessRequestWrapper(httpServletRequest, objectMapper, access, accessSampler);
         try{
             accessRequestWrapper.recordAccessParams();
         }catch (Exception e){
@@ -118,22 +154,32 @@ public class AccessFilter implements Filter {
             return;
         }
 
-        // servlet处理
-        chain.doFilter(accessRequestWrapper, response);
+        // servlet处理，debug级别时记录写出的响应内容
+        AccessResponseWrapper accessResponseWrapper = null;
+        if (AccessLogger.isDebugEnabled()) {
+            accessResponseWrapper = new AccessResponseWrapper(httpServletResponse, accessProperties.getLog().getResponseLimit());
+            access.setResponseWrapper(accessResponseWrapper);
+        }
+        try {
+            chain.doFilter(accessRequestWrapper, accessResponseWrapper != null ? accessResponseWrapper : response);
+        } finally {
+            // 清除请求内的方法调用缓存
+            access.clearMemo();
+            // 写出writer中缓冲的内容，以及延迟的响应日志
+            if (accessResponseWrapper != null) {
+                accessResponseWrapper.flushLog(accessLogQueue);
+            }
+        }
+
+        // 接口耗时
+        accessTimers.record(httpServletRequest, httpServletResponse.getStatus(), System.nanoTime() - startNanos);
 
         // 拦截打印响应（如果AccessLogger中没有打印）
         if (!access.isResponseLogged()) {
             int status = httpServletResponse.getStatus();
             long cost = System.currentTimeMillis() - access.getAccessTime();
-            if (status == SUCCESS.getStatus()) {
-                AccessLogger.info("<< {} {}ms", status, cost);
-            } else {
-                if (!AccessLogger.isInfoEnabled()) {
-                    AccessLogger.warn("<< {} {}ms {} {}", status, cost,
-                            access.getAccessUrl(), objectMapper.writeValueAsString(access.getRequestParam()));
-                }else{
-                    AccessLogger.warn("<< {} {}ms", status, cost);
-                }
+            if (accessSampler.sample(access, status, status != SUCCESS.getStatus(), cost)) {
+                logResponse(access, status, cost);
             }
         }
 
@@ -142,16 +188,58 @@ public class AccessFilter implements Filter {
         MDC.remove("accessId");
     }
 
+    private void setCrossHeaders(HttpServletResponse httpServletResponse) {
+        AccessProperties.CrossControl crossControl = accessProperties.getCross();
+        httpServletResponse.setHeader(Access_Control_Allow_Origin, crossControl.getAllowOrigin());
+        httpServletResponse.setHeader(Access_Control_Allow_Methods, crossControl.getAllowMethods());
+        httpServletResponse.setHeader(Access_Control_Allow_Headers, crossControl.getAllowHeaders());
+        httpServletResponse.setHeader(Access_Control_Allow_Credentials, String.valueOf(crossControl.isAllowCredentials()));
+    }
+
+    private void rejectOverload(HttpServletResponse httpResponse) throws IOException {
+        int httpStatus = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        if(accessProperties.isAlwaysSuccess()){
+            httpStatus = SUCCESS.getStatus();
+        }
+        setCrossHeaders(httpResponse);
+        httpResponse.setHeader("Retry-After", String.valueOf(loadShedder.getRetryAfter()));
+        httpResponse.setCharacterEncoding("UTF-8");
+        httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        httpResponse.setStatus(httpStatus);
+        httpResponse.getWriter().write(objectMapper.writeValueAsString(
+                new Response<>(SERVICE_UNAVAILABLE, I18Messages.msg("frame.access.overload"), null)));
+    }
+
+    private void logResponse(Access access, int status, long cost) {
+        if (status == SUCCESS.getStatus()) {
+            accessLogQueue.info("<< {} {}ms", status, cost);
+        } else {
+            if (!AccessLogger.isInfoEnabled()) {
+                accessLogQueue.warn("<< {} {}ms {} {}", status, cost,
+                        access.getAccessUrl(), AccessLogQueue.json(objectMapper.writer(), access.getRequestParam()));
+            }else{
+                accessLogQueue.warn("<< {} {}ms", status, cost);
+            }
+        }
+    }
+
     private void parseUserPayload(Access access, HttpServletRequest httpServletRequest){
         String userPayload = httpServletRequest.getHeader(X_User_Payload);
         if(StringUtils.isBlank(userPayload)){
             return;
         }
 
+        // 同一用户会重复携带相同的payload，优先从缓存获取
+        AccessUserDetails userDetails = userPayloadCache.get(userPayload);
+        if (userDetails != null) {
+            access.setUserDetails(userDetails);
+            return;
+        }
+
         String json = new String(Base64.getUrlDecoder().decode(userPayload));
         try {
             Map<String, Object> claims = objectMapper.readValue(json, Map.class);
-            AccessUserDetails userDetails = new AccessUserDetails();
+            userDetails = new AccessUserDetails();
             userDetails.setAuthType((String) claims.get(CLAIM_TYPE));
             userDetails.setAccessId((String) claims.get(CLAIM_ACCESS_ID));
             userDetails.setRefreshId((String) claims.get(CLAIM_REFRESH_ID));
@@ -171,12 +259,23 @@ public class AccessFilter implements Filter {
             userDetails.setClusterId((Integer) claims.get(CLAIM_CLUSTER_ID));
             userDetails.setClusterLevel((Integer) claims.get(CLAIM_CLUSTER_LEVEL));
             userDetails.setClusterName((String) claims.get(CLAIM_CLUSTER_NAME));
-            // roles
-            userDetails.setRoles((List<String>) claims.get(CLAIM_USER_ROLE));
-            // permits
-            userDetails.setPermissions((List<String>) claims.get(CLAIM_USER_PERM));
+            // roles & permits，令牌开启摘要时只有摘要
+            String permitDigest = (String) claims.get(CLAIM_PERMIT_DIGEST);
+            if (permitDigest != null) {
+                PermitDigestCache.Permits permits = permitDigestCache != null ? permitDigestCache.resolve(permitDigest) : null;
+                if (permits == null) {
+                    log.error("failed to resolve permit digest {} of user payload", permitDigest);
+                    return;
+                }
+                userDetails.setRoles(permits.getRoles());
+                userDetails.setPermissions(permits.getPermissions());
+            } else {
+                userDetails.setRoles((List<String>) claims.get(CLAIM_USER_ROLE));
+                userDetails.setPermissions((List<String>) claims.get(CLAIM_USER_PERM));
+            }
             // 设置
             access.setUserDetails(userDetails);
+            userPayloadCache.put(userPayload, userDetails, claims.get(CLAIM_EXPIRATION));
         } catch (JsonProcessingException e) {
             log.error("", e);
         }
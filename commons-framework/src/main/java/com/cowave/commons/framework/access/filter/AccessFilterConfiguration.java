@@ -9,15 +9,26 @@
  */
 package com.cowave.commons.framework.access.filter;
 
+import com.cowave.commons.framework.access.AccessLogQueue;
 import com.cowave.commons.framework.access.AccessProperties;
+import com.cowave.commons.framework.access.AccessSampler;
+import com.cowave.commons.framework.access.AccessTimers;
+import com.cowave.commons.framework.access.security.PermitDigestCache;
+import com.cowave.commons.framework.configuration.ApplicationProperties;
+import com.cowave.commons.framework.helper.redis.RedisHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
 import javax.annotation.Nullable;
 
@@ -41,13 +52,73 @@ public class AccessFilterConfiguration {
         return new AccessIdGenerator(idPrefix);
     }
 
+    @Bean(destroyMethod = "shutdown")
+    public AccessLogQueue accessLogQueue(AccessProperties accessProperties){
+        AccessProperties.LogConfig logConfig = accessProperties.getLog();
+        return new AccessLogQueue(logConfig.isAsync(), logConfig.getQueueSize(), logConfig.getBatchSize(), logConfig.isNeverBlock());
+    }
+
+    @Bean
+    public AccessSampler accessSampler(AccessProperties accessProperties, AccessLogQueue accessLogQueue){
+        return new AccessSampler(accessProperties.getLog().getSample(), accessLogQueue);
+    }
+
+    @Bean
+    public AccessTimers accessTimers(ObjectProvider<MeterRegistry> meterRegistryProvider){
+        return new AccessTimers(meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    @Bean
+    public UserPayloadCache userPayloadCache(AccessProperties accessProperties){
+        AccessProperties.PayloadConfig payloadConfig = accessProperties.getPayload();
+        return new UserPayloadCache(payloadConfig.getCacheSize(), payloadConfig.getCacheExpire());
+    }
+
     @Bean
-    public FilterRegistrationBean<AccessFilter> accessFilterRegistration(AccessIdGenerator accessIdGenerator, AccessProperties accessProperties){
+    public FilterRegistrationBean<AccessFilter> accessFilterRegistration(AccessIdGenerator accessIdGenerator, AccessProperties accessProperties,
+                                                                         AccessLogQueue accessLogQueue, AccessSampler accessSampler,
+                                                                         AccessTimers accessTimers, UserPayloadCache userPayloadCache,
+                                                                         ObjectProvider<RequestMappingHandlerMapping> handlerMappings,
+                                                                         ObjectProvider<PermitDigestCache> permitDigestCacheProvider,
+                                                                         ObjectProvider<RedisHelper> redisHelperProvider,
+                                                                         ApplicationProperties applicationProperties){
+        AccessProperties.ShedConfig shedConfig = accessProperties.getShed();
+        LoadShedder loadShedder = shedConfig.isEnable() ? new LoadShedder(shedConfig, handlerMappings) : null;
         FilterRegistrationBean<AccessFilter> registration = new FilterRegistrationBean<>();
-        registration.setFilter(new AccessFilter(transactionIdSetter, accessIdGenerator, accessProperties, objectMapper));
+        registration.setFilter(new AccessFilter(transactionIdSetter, accessIdGenerator, accessProperties,
+                objectMapper, accessLogQueue, accessSampler, accessTimers, userPayloadCache, loadShedder,
+                permitDigestCache(permitDigestCacheProvider, redisHelperProvider, applicationProperties, accessProperties)));
         registration.setName("accessFilter");
         registration.addUrlPatterns(accessProperties.getFilter());
         registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
         return registration;
     }
+
+    /**
+     * 解析网关透传的权限摘要，没有启用Spring Security时（没有PermitDigestCache）直接从Redis读取
+     */
+    private PermitDigestCache permitDigestCache(ObjectProvider<PermitDigestCache> permitDigestCacheProvider,
+                                                ObjectProvider<RedisHelper> redisHelperProvider,
+                                                ApplicationProperties applicationProperties, AccessProperties accessProperties){
+        return permitDigestCacheProvider.getIfAvailable(() -> {
+            RedisHelper redisHelper = redisHelperProvider.getIfAvailable();
+            return redisHelper == null ? null : new PermitDigestCache(applicationProperties.getName(), redisHelper, 1000,
+                    Math.max(accessProperties.accessExpire(), accessProperties.refreshExpire()));
+        });
+    }
+
+    @ConditionalOnProperty(name = "spring.access.tenant.enable", havingValue = "true")
+    @Bean
+    public FilterRegistrationBean<TenantFairFilter> tenantFairFilterRegistration(AccessProperties accessProperties,
+                                                                               ObjectProvider<MeterRegistry> meterRegistryProvider){
+        TenantScheduler tenantScheduler = new TenantScheduler(accessProperties.getTenant());
+        FilterRegistrationBean<TenantFairFilter> registration = new FilterRegistrationBean<>();
+        registration.setFilter(new TenantFairFilter(tenantScheduler, accessProperties,
+                objectMapper, meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new)));
+        registration.setName("tenantFairFilter");
+        registration.addUrlPatterns(accessProperties.getFilter());
+        // 在Spring Security（默认-100）之后，认证完成才能拿到租户
+        registration.setOrder(0);
+        return registration;
+    }
 }
@@ -9,22 +9,22 @@
  */
 package com.cowave.commons.framework.access.filter;
 
-import com.cowave.commons.tools.ids.IdGenerator;
-import lombok.RequiredArgsConstructor;
+import com.cowave.commons.tools.ids.DateIdGenerator;
 
 /**
  *
  * @author shanhuiming
  *
  */
-@RequiredArgsConstructor
 public class AccessIdGenerator {
 
-    private final IdGenerator idGenerator = new IdGenerator();
+    private final DateIdGenerator idGenerator;
 
-    private final String idPrefix;
+    public AccessIdGenerator(String idPrefix) {
+        this.idGenerator = new DateIdGenerator(idPrefix, "", "yyyyMMddHHmmss", 1000);
+    }
 
     public String newAccessId() {
-        return idGenerator.generateIdWithDate(idPrefix, "", "yyyyMMddHHmmss", 1000);
+        return idGenerator.newId();
     }
 }
@@ -10,7 +10,8 @@
 package com.cowave.commons.framework.access.filter;
 
 import com.cowave.commons.framework.access.Access;
-import com.cowave.commons.framework.access.AccessLogger;
+import com.cowave.commons.framework.access.AccessLogQueue;
+import com.cowave.commons.framework.access.AccessSampler;
 import com.cowave.commons.tools.Converts;
 import com.cowave.commons.tools.ServletUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -56,9 +57,13 @@ public class AccessRequestWrapper extends HttpServletRequestWrapper {
 
     private final ObjectWriter objectWriter;
 
-    public AccessRequestWrapper(HttpServletRequest request, ObjectMapper objectMapper, Access access) throws IOException {
+    private final AccessSampler accessSampler;
+
+    public AccessRequestWrapper(HttpServletRequest request, ObjectMapper objectMapper,
+                                Access access, AccessSampler accessSampler) throws IOException {
         super(request);
         this.access = access;
+        this.accessSampler = accessSampler;
         this.objectMapper = objectMapper;
         this.objectWriter = objectMapper.writer(new SimpleFilterProvider().addFilter(
                 "passwdFilter", SimpleBeanPropertyFilter.serializeAllExcept("password", "passwd")));
@@ -132,23 +137,30 @@ public class AccessRequestWrapper extends HttpServletRequestWrapper {
         }
 
         Map<String, Object> requestParams = new HashMap<>();
-        // 请求日志
-        StringBuilder logBuilder = new StringBuilder();
-        logBuilder.append(">> ").append(getProtocol()).append(" ").append(getMethod()).append(" ").append(url);
+        // 请求日志，参数序列化延迟到日志输出时
+        List<Object> logArgs = new ArrayList<>(7);
+        StringBuilder logFormat = new StringBuilder(">> {} {} {}");
+        logArgs.add(getProtocol());
+        logArgs.add(getMethod());
+        logArgs.add(url);
         if(StringUtils.isNotBlank(contentType)){
-            logBuilder.append(" ").append(contentType);
+            logFormat.append(" {}");
+            logArgs.add(contentType);
         }
-        logBuilder.append(" ").append(remote);
+        logFormat.append(" {}");
+        logArgs.add(remote);
 
         if(!paramMap.isEmpty()){
             requestParams.put("params", paramMap);
-            logBuilder.append(" params=").append(objectWriter.writeValueAsString(paramMap));
+            logFormat.append(" params={}");
+            logArgs.add(AccessLogQueue.json(objectWriter, paramMap));
         }
         if(bodyObject != null){
             requestParams.put("body", bodyObject);
-            logBuilder.append(" body=").append(objectWriter.writeValueAsString(bodyObject));
+            logFormat.append(" body={}");
+            logArgs.add(AccessLogQueue.json(objectWriter, bodyObject));
         }
-        AccessLogger.info(logBuilder.toString());
+        accessSampler.logRequest(access, logFormat.toString(), logArgs.toArray());
 
         // 记录请求参数
         access.setRequestParam(requestParams);
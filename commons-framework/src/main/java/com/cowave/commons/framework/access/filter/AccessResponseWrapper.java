@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.filter;
+
+import com.cowave.commons.framework.access.AccessLogQueue;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 响应包装，记录实际写出的前N个字节用于响应日志，避免为了打印日志再序列化一次响应
+ *
+ * @author shanhuiming
+ */
+public class AccessResponseWrapper extends HttpServletResponseWrapper {
+
+    private final int captureLimit;
+
+    private byte[] captured;
+
+    private int capturedLength;
+
+    private long totalLength;
+
+    private ServletOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    private String logFormat;
+
+    private Object[] logArgs;
+
+    public AccessResponseWrapper(HttpServletResponse response, int captureLimit) {
+        super(response);
+        this.captureLimit = Math.max(captureLimit, 0);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new CaptureOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        flushWriter();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        // 先把writer中的字符推到底层缓冲，再一起丢弃，否则之后还会被写出
+        flushWriter();
+        super.resetBuffer();
+        clearCaptured();
+    }
+
+    @Override
+    public void reset() {
+        flushWriter();
+        super.reset();
+        clearCaptured();
+    }
+
+    /**
+     * 延迟响应日志，等响应写出后再输出，参数最后追加响应内容
+     */
+    public void deferLog(String format, Object... arguments) {
+        this.logFormat = format;
+        this.logArgs = arguments;
+    }
+
+    /**
+     * 输出延迟的响应日志
+     */
+    public void flushLog(AccessLogQueue accessLogQueue) {
+        // 不管有没有延迟日志，writer是非自动刷新的，都要把其中的内容写出去
+        flushWriter();
+        if (logFormat == null) {
+            return;
+        }
+        Object[] arguments = new Object[logArgs.length + 1];
+        System.arraycopy(logArgs, 0, arguments, 0, logArgs.length);
+        arguments[logArgs.length] = getCapturedBody();
+        accessLogQueue.debug(logFormat, arguments);
+        logFormat = null;
+        logArgs = null;
+    }
+
+    /**
+     * 记录的响应内容，超出部分截断
+     */
+    public String getCapturedBody() {
+        if (capturedLength == 0) {
+            return "";
+        }
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        String body = new String(captured, 0, capturedLength, charset);
+        if (totalLength > capturedLength) {
+            return body + "...(" + totalLength + " bytes)";
+        }
+        return body;
+    }
+
+    private void flushWriter() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    private void clearCaptured() {
+        capturedLength = 0;
+        totalLength = 0;
+    }
+
+    private void capture(int b) {
+        totalLength++;
+        if (capturedLength < captureLimit) {
+            ensureCaptureBuffer();
+            captured[capturedLength++] = (byte) b;
+        }
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        totalLength += len;
+        int remain = captureLimit - capturedLength;
+        if (remain > 0) {
+            ensureCaptureBuffer();
+            int copy = Math.min(remain, len);
+            System.arraycopy(b, off, captured, capturedLength, copy);
+            capturedLength += copy;
+        }
+    }
+
+    private void ensureCaptureBuffer() {
+        if (captured == null) {
+            captured = new byte[captureLimit];
+        }
+    }
+
+    private class CaptureOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        CaptureOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            capture(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
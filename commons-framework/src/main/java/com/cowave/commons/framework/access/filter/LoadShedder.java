@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.filter;
+
+import com.cowave.commons.framework.access.AccessPriority;
+import com.cowave.commons.framework.access.AccessProperties;
+import com.cowave.commons.framework.access.Criticality;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 过载保护，压力较大时按接口的重要程度提前拒绝请求
+ * <p> 压力信号：处理中的请求数、请求平均耗时(EWMA)；
+ * <p> 处理中的请求数达到 maxInflight * sheddableRatio 或平均耗时超过阈值时拒绝SHEDDABLE接口，达到maxInflight时再拒绝DEFAULT接口，CRITICAL接口不拒绝；
+ * <p> 平均耗时只由放行的请求更新，因此按距上次采样的时间衰减（每秒减半），只有SHEDDABLE流量时拒绝不会一直持续，衰减到阈值以下后放行的请求重新采样；
+ * <p> 接口的重要程度来自配置的url和@AccessPriority注解（第一次需要判断时从RequestMappingHandlerMapping中收集），只在有压力时才解析，按路径缓存
+ *
+ * @author shanhuiming
+ */
+public class LoadShedder {
+
+    // 平均耗时的衰减：ewma += (sample - ewma) / 16
+    private static final int EWMA_SHIFT = 4;
+
+    // 没有新的采样时，平均耗时每隔这么久减半
+    private static final long EWMA_HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private final AtomicLong latencyEwma = new AtomicLong();
+
+    private volatile long lastSampleNanos = System.nanoTime();
+
+    private final Cache<String, Criticality> criticalities = CacheBuilder.newBuilder().maximumSize(4096).build();
+
+    private final ObjectProvider<RequestMappingHandlerMapping> handlerMappings;
+
+    private final int maxInflight;
+
+    private final int sheddableInflight;
+
+    private final long latencyThresholdNanos;
+
+    private final int retryAfter;
+
+    private final String[] criticalUrls;
+
+    private final String[] sheddableUrls;
+
+    private volatile List<Rule> rules;
+
+    public LoadShedder(AccessProperties.ShedConfig shedConfig, ObjectProvider<RequestMappingHandlerMapping> handlerMappings) {
+        this.handlerMappings = handlerMappings;
+        this.maxInflight = Math.max(shedConfig.getMaxInflight(), 1);
+        this.sheddableInflight = (int) Math.max(maxInflight * shedConfig.getSheddableRatio(), 1);
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(shedConfig.getLatencyThreshold());
+        this.retryAfter = Math.max(shedConfig.getRetryAfter(), 1);
+        this.criticalUrls = shedConfig.getCriticalUrls();
+        this.sheddableUrls = shedConfig.getSheddableUrls();
+    }
+
+    /**
+     * 请求进入，返回false表示应该拒绝
+     */
+    public boolean enter(HttpServletRequest request) {
+        boolean overLatency = latencyThresholdNanos > 0 && decayedLatency(latencyEwma.get()) > latencyThresholdNanos;
+        Criticality criticality = null;
+        // 判断和计数在同一次CAS中完成，并发进入的请求不会一起越过上限
+        while (true) {
+            int current = inflight.get();
+            if (current >= sheddableInflight || overLatency) {
+                if (criticality == null) {
+                    criticality = criticality(request);
+                }
+                if (criticality == Criticality.SHEDDABLE
+                        || (criticality == Criticality.DEFAULT && current >= maxInflight)) {
+                    return false;
+                }
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求结束，enter返回true时才调用
+     */
+    public void exit(long costNanos) {
+        inflight.decrementAndGet();
+        long stored;
+        long next;
+        do {
+            stored = latencyEwma.get();
+            long current = decayedLatency(stored);
+            next = current == 0 ? costNanos : current + ((costNanos - current) >> EWMA_SHIFT);
+        } while (!latencyEwma.compareAndSet(stored, next));
+        lastSampleNanos = System.nanoTime();
+    }
+
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 按距上次采样的时间衰减后的平均耗时
+     */
+    private long decayedLatency(long ewma) {
+        long halves = (System.nanoTime() - lastSampleNanos) / EWMA_HALF_LIFE_NANOS;
+        if (halves <= 0) {
+            return ewma;
+        }
+        return halves >= Long.SIZE ? 0 : ewma >> halves;
+    }
+
+    private Criticality criticality(HttpServletRequest request) {
+        String path = request.getServletPath();
+        if (request.getPathInfo() != null) {
+            path = path + request.getPathInfo();
+        }
+        Criticality criticality = criticalities.getIfPresent(path);
+        if (criticality == null) {
+            criticality = Criticality.DEFAULT;
+            for (Rule rule : rules()) {
+                if (pathMatcher.match(rule.pattern, path)) {
+                    criticality = rule.criticality;
+                    break;
+                }
+            }
+            criticalities.put(path, criticality);
+        }
+        return criticality;
+    }
+
+    private List<Rule> rules() {
+        List<Rule> current = rules;
+        if (current == null) {
+            synchronized (this) {
+                current = rules;
+                if (current == null) {
+                    current = collectRules();
+                    rules = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 配置的url优先于注解
+     */
+    private List<Rule> collectRules() {
+        List<Rule> list = new ArrayList<>();
+        if (criticalUrls != null) {
+            for (String url : criticalUrls) {
+                list.add(new Rule(url, Criticality.CRITICAL));
+            }
+        }
+        if (sheddableUrls != null) {
+            for (String url : sheddableUrls) {
+                list.add(new Rule(url, Criticality.SHEDDABLE));
+            }
+        }
+        handlerMappings.orderedStream().forEach(handlerMapping -> {
+            for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping.getHandlerMethods().entrySet()) {
+                HandlerMethod handlerMethod = entry.getValue();
+                AccessPriority priority = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), AccessPriority.class);
+                if (priority == null) {
+                    priority = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), AccessPriority.class);
+                }
+                if (priority != null && priority.value() != Criticality.DEFAULT) {
+                    for (String pattern : entry.getKey().getPatternValues()) {
+                        list.add(new Rule(pattern, priority.value()));
+                    }
+                }
+            }
+        });
+        return list;
+    }
+
+    private record Rule(String pattern, Criticality criticality) {
+
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.filter;
+
+import com.cowave.commons.client.http.asserts.I18Messages;
+import com.cowave.commons.client.http.response.Response;
+import com.cowave.commons.framework.access.Access;
+import com.cowave.commons.framework.access.AccessProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.cowave.commons.client.http.constants.HttpCode.SUCCESS;
+import static com.cowave.commons.client.http.constants.HttpCode.TOO_MANY_REQUESTS;
+
+/**
+ * 租户公平调度，在认证之后执行（需要Access中的租户信息）
+ * <p> 按租户记录通过请求的排队时长和处理耗时的分布：access.tenant.queue、access.tenant.requests，以及拒绝数：access.tenant.rejected；
+ * <p> 按租户区分的指标数不超过metricsTenants，超出的租户合并到tenant=other
+ *
+ * @author shanhuiming
+ */
+public class TenantFairFilter extends OncePerRequestFilter {
+
+    public static final String METRIC_QUEUE = "access.tenant.queue";
+
+    public static final String METRIC_REQUESTS = "access.tenant.requests";
+
+    public static final String METRIC_REJECTED = "access.tenant.rejected";
+
+    private static final String NO_TENANT = "";
+
+    private static final String OTHER_TENANT = "other";
+
+    private final ConcurrentHashMap<String, TenantMeters> meters = new ConcurrentHashMap<>();
+
+    private final int metricsTenants;
+
+    private volatile TenantMeters otherMeters;
+
+    private final TenantScheduler tenantScheduler;
+
+    private final AccessProperties accessProperties;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    public TenantFairFilter(TenantScheduler tenantScheduler, AccessProperties accessProperties,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.tenantScheduler = tenantScheduler;
+        this.accessProperties = accessProperties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.metricsTenants = Math.max(accessProperties.getTenant().getMetricsTenants(), 0);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        String tenantId = Access.tenantId();
+        if (tenantId == null) {
+            tenantId = NO_TENANT;
+        }
+
+        long startNanos = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = tenantScheduler.acquire(tenantId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        TenantMeters tenantMeters = meters(tenantId);
+        if (!acquired) {
+            // 拒绝的请求单独计数，不计入排队时长，否则排队超时会拉高分布
+            tenantMeters.rejected.increment();
+            reject(response);
+            return;
+        }
+        long queueNanos = System.nanoTime() - startNanos;
+        tenantMeters.queue.record(queueNanos, TimeUnit.NANOSECONDS);
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            tenantScheduler.release(tenantId);
+            tenantMeters.requests.record(System.nanoTime() - startNanos - queueNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        int httpStatus = TOO_MANY_REQUESTS.getStatus();
+        if (accessProperties.isAlwaysSuccess()) {
+            httpStatus = SUCCESS.getStatus();
+        }
+        response.setHeader("Retry-After", "1");
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(httpStatus);
+        response.getWriter().write(objectMapper.writeValueAsString(
+                Response.msg(TOO_MANY_REQUESTS, I18Messages.msg("frame.access.limit"))));
+    }
+
+    private TenantMeters meters(String tenantId) {
+        TenantMeters tenantMeters = meters.get(tenantId);
+        if (tenantMeters != null) {
+            return tenantMeters;
+        }
+        // 超出上限时不再注册新的tag（并发时可能略微超出）
+        if (meters.size() >= metricsTenants) {
+            return otherMeters();
+        }
+        return meters.computeIfAbsent(tenantId, this::newMeters);
+    }
+
+    private TenantMeters otherMeters() {
+        TenantMeters other = otherMeters;
+        if (other == null) {
+            synchronized (this) {
+                other = otherMeters;
+                if (other == null) {
+                    other = newMeters(OTHER_TENANT);
+                    otherMeters = other;
+                }
+            }
+        }
+        return other;
+    }
+
+    private TenantMeters newMeters(String tenant) {
+        return new TenantMeters(
+                Timer.builder(METRIC_QUEUE).description("queue time of admitted tenant requests")
+                        .tag("tenant", tenant).publishPercentiles(0.5, 0.9, 0.99).percentilePrecision(2).register(meterRegistry),
+                Timer.builder(METRIC_REQUESTS).description("process time of tenant requests")
+                        .tag("tenant", tenant).publishPercentiles(0.5, 0.9, 0.99).percentilePrecision(2).register(meterRegistry),
+                Counter.builder(METRIC_REJECTED).description("tenant requests rejected when queue is full or timed out")
+                        .tag("tenant", tenant).register(meterRegistry));
+    }
+
+    private record TenantMeters(Timer queue, Timer requests, Counter rejected) {
+
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.filter;
+
+import com.cowave.commons.framework.access.AccessProperties;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 租户公平调度：每个租户一个排队通道，按租户权重做差额轮询(DRR)放行
+ * <p> 总并发和单个租户的并发都有上限，未达上限且没有排队时直接放行；
+ * <p> 否则进入租户自己的通道等待，每次有空位时放行队首通道的一个请求并扣减1个额度：通道到达队首且额度不足1时增加权重大小的额度，
+ * 额度用完后才移到队尾，所以工作线程饱和（每次只空出一个位置）时各租户放行的比例仍然等于权重之比；
+ * <p> 每个通道的排队数量有上限，所以单个租户最多占用 (并发上限 + 排队上限) 个工作线程，超出直接拒绝
+ *
+ * @author shanhuiming
+ */
+public class TenantScheduler {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<String, Lane> lanes = new HashMap<>();
+
+    // 有排队请求的通道，按轮询顺序
+    private final ArrayDeque<Lane> activeLanes = new ArrayDeque<>();
+
+    private final int maxConcurrency;
+
+    private final int tenantConcurrency;
+
+    private final int queueSize;
+
+    private final long queueTimeoutNanos;
+
+    private final Map<String, Integer> weights;
+
+    private int running;
+
+    public TenantScheduler(AccessProperties.TenantConfig tenantConfig) {
+        this.maxConcurrency = Math.max(tenantConfig.getMaxConcurrency(), 1);
+        this.tenantConcurrency = Math.max(tenantConfig.getTenantConcurrency(), 1);
+        this.queueSize = Math.max(tenantConfig.getQueueSize(), 0);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(tenantConfig.getQueueTimeout());
+        this.weights = tenantConfig.getWeights() != null ? tenantConfig.getWeights() : Map.of();
+    }
+
+    /**
+     * 获取执行许可，返回false表示排队已满或等待超时
+     */
+    public boolean acquire(String tenantId) throws InterruptedException {
+        lock.lock();
+        try {
+            Lane lane = lanes.computeIfAbsent(tenantId, k -> new Lane(k, weight(k)));
+            if (lane.waiters.isEmpty() && running < maxConcurrency && lane.running < tenantConcurrency) {
+                start(lane);
+                return true;
+            }
+            if (lane.waiters.size() >= queueSize) {
+                removeIdle(lane);
+                return false;
+            }
+
+            Waiter waiter = new Waiter(lock.newCondition());
+            lane.waiters.addLast(waiter);
+            if (lane.waiters.size() == 1) {
+                activeLanes.addLast(lane);
+            }
+            long remaining = queueTimeoutNanos;
+            try {
+                while (!waiter.granted) {
+                    if (remaining <= 0) {
+                        cancel(lane, waiter);
+                        return false;
+                    }
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+                return true;
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    // 已经放行，交给调用方释放
+                    Thread.currentThread().interrupt();
+                    return true;
+                }
+                cancel(lane, waiter);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(String tenantId) {
+        lock.lock();
+        try {
+            Lane lane = lanes.get(tenantId);
+            if (lane == null) {
+                return;
+            }
+            lane.running--;
+            running--;
+            dispatch();
+            removeIdle(lane);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        // 连续因为租户并发上限而跳过的通道数，轮完一圈仍没有可放行的就结束
+        int skipped = 0;
+        while (running < maxConcurrency && !activeLanes.isEmpty() && skipped < activeLanes.size()) {
+            Lane lane = activeLanes.peekFirst();
+            if (lane.running >= tenantConcurrency) {
+                // 受并发上限阻塞而不是额度不够，不累积额度，避免解除阻塞后集中放行
+                lane.deficit = Math.min(lane.deficit, lane.weight);
+                activeLanes.addLast(activeLanes.pollFirst());
+                skipped++;
+                continue;
+            }
+            skipped = 0;
+            // 额度用完的通道回到队首时才增加权重大小的额度
+            if (lane.deficit < 1) {
+                lane.deficit += lane.weight;
+            }
+            lane.deficit--;
+            Waiter waiter = lane.waiters.pollFirst();
+            start(lane);
+            waiter.granted = true;
+            waiter.condition.signal();
+            if (lane.waiters.isEmpty()) {
+                activeLanes.pollFirst();
+                lane.deficit = 0;
+            } else if (lane.deficit < 1) {
+                activeLanes.addLast(activeLanes.pollFirst());
+            }
+            // 还有额度并且有排队的通道留在队首，下一个空位继续放行
+        }
+    }
+
+    private void cancel(Lane lane, Waiter waiter) {
+        lane.waiters.remove(waiter);
+        if (lane.waiters.isEmpty()) {
+            activeLanes.remove(lane);
+            lane.deficit = 0;
+        }
+        removeIdle(lane);
+    }
+
+    private void removeIdle(Lane lane) {
+        if (lane.running == 0 && lane.waiters.isEmpty()) {
+            lanes.remove(lane.tenantId);
+        }
+    }
+
+    private void start(Lane lane) {
+        lane.running++;
+        running++;
+    }
+
+    private int weight(String tenantId) {
+        Integer weight = weights.get(tenantId);
+        return weight != null && weight > 0 ? weight : 1;
+    }
+
+    private static class Lane {
+
+        private final String tenantId;
+
+        private final int weight;
+
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+        private int running;
+
+        private int deficit;
+
+        Lane(String tenantId, int weight) {
+            this.tenantId = tenantId;
+            this.weight = weight;
+        }
+    }
+
+    private static class Waiter {
+
+        private final Condition condition;
+
+        private boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.filter;
+
+import com.cowave.commons.framework.access.security.AccessUserDetails;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关透传的用户信息（X-User-Payload）缓存，命中时跳过base64解码和json解析
+ * <p> 以原始header值为key（按其hash定位，equals校验，不会误命中），有界LRU淘汰；
+ * <p> 缓存的时长不超过配置的上限，如果payload中有exp，也不超过exp；
+ * <p> 缓存的是用户信息的不可变快照，每次返回新的副本，请求中对用户信息的修改不会影响其它请求
+ *
+ * @author shanhuiming
+ */
+public class UserPayloadCache {
+
+    private final Cache<String, Entry> cache;
+
+    private final long expireMillis;
+
+    public UserPayloadCache(int maximumSize, long expireSeconds) {
+        this.expireMillis = TimeUnit.SECONDS.toMillis(expireSeconds);
+        this.cache = maximumSize > 0 && expireSeconds > 0 ? CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build() : null;
+    }
+
+    public AccessUserDetails get(String userPayload) {
+        if (cache == null) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(userPayload);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt <= System.currentTimeMillis()) {
+            cache.invalidate(userPayload);
+            return null;
+        }
+        return new AccessUserDetails(entry.userDetails);
+    }
+
+    /**
+     * @param exp payload中的过期时间(s)，可以为空
+     */
+    public void put(String userPayload, AccessUserDetails userDetails, Object exp) {
+        if (cache == null) {
+            return;
+        }
+        long expireAt = System.currentTimeMillis() + expireMillis;
+        if (exp instanceof Number number) {
+            expireAt = Math.min(expireAt, number.longValue() * 1000);
+        }
+        if (expireAt > System.currentTimeMillis()) {
+            cache.put(userPayload, new Entry(AccessUserDetails.snapshot(userDetails), expireAt));
+        }
+    }
+
+    private static class Entry {
+
+        private final AccessUserDetails userDetails;
+
+        private final long expireAt;
+
+        Entry(AccessUserDetails userDetails, long expireAt) {
+            this.userDetails = userDetails;
+            this.expireAt = expireAt;
+        }
+    }
+}
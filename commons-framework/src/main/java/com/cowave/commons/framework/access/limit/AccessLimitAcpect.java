@@ -11,6 +11,7 @@ package com.cowave.commons.framework.access.limit;
 
 import com.cowave.commons.client.http.asserts.HttpHintException;
 import com.cowave.commons.framework.access.Access;
+import com.cowave.commons.framework.access.AccessExpressions;
 import com.cowave.commons.framework.access.AccessProperties;
 import com.cowave.commons.framework.configuration.ApplicationProperties;
 import com.cowave.commons.tools.ServletUtils;
@@ -22,10 +23,6 @@ import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.common.TemplateParserContext;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletRequest;
@@ -45,8 +42,6 @@ import static com.cowave.commons.client.http.constants.HttpCode.TOO_MANY_REQUEST
 @Component
 public class AccessLimitAcpect {
 
-    private final ExpressionParser exprParser = new SpelExpressionParser();
-
     private final ApplicationProperties applicationProperties;
 
     private final AccessProperties accessProperties;
@@ -88,26 +83,19 @@ public class AccessLimitAcpect {
         // spel
         String keySpel = accessLimit.limitWithKey();
         if(StringUtils.isNotBlank(keySpel)){
-            EvaluationContext context = new StandardEvaluationContext();
-            Object[] args = point.getArgs();
-            String[] paramNames = signature.getParameterNames();
-            if(paramNames != null) {
-                for (int i = 0; i < args.length; i++) {
-                    context.setVariable(paramNames[i], args[i]);
-                }
-            }
-            String key = exprParser.parseExpression(keySpel, new TemplateParserContext()).getValue(context, String.class);
+            EvaluationContext context = AccessExpressions.context(method, point.getArgs());
+            String key = AccessExpressions.template(keySpel).getValue(context, String.class);
             limitKey = limitKey + ":" + key;
         }
 
-        boolean throughLimit = accessLimiter.throughLimit(limitKey, accessLimit.period(), accessLimit.limits());
-        if(throughLimit){
+        long retryMillis = accessLimiter.tryThrough(limitKey, accessLimit.period(), accessLimit.limits());
+        if(retryMillis <= 0){
             return;
         }
 
         HttpServletResponse httpServletResponse = Access.httpResponse();
         assert httpServletResponse != null;
-        long retryAfter = accessLimit.period() / 1000;
+        long retryAfter = (retryMillis + 999) / 1000;
         httpServletResponse.setHeader("Retry-After", String.valueOf(retryAfter > 0 ? retryAfter : 1));
         if(accessProperties.isAlwaysSuccess()){
             throw new HttpHintException(SUCCESS.getStatus(), TOO_MANY_REQUESTS.getCode(), accessLimit.message());
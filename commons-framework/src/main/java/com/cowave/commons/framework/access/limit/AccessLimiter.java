@@ -17,4 +17,11 @@ package com.cowave.commons.framework.access.limit;
 public interface AccessLimiter {
 
     boolean throughLimit(String limitKey, long period, long limits);
+
+    /**
+     * @return 0表示通过，否则为建议的重试等待时长(ms)
+     */
+    default long tryThrough(String limitKey, long period, long limits) {
+        return throughLimit(limitKey, period, limits) ? 0 : Math.max(period, 1);
+    }
 }
@@ -9,33 +9,49 @@
  */
 package com.cowave.commons.framework.access.limit;
 
-import com.google.common.util.concurrent.RateLimiter;
+import com.cowave.commons.framework.support.limit.GcraLimiter;
+import com.cowave.commons.framework.support.limit.LimiterStore;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * 本地限流，限流器保存在有界的LimiterStore中，空闲后淘汰
  *
  * @author shanhuiming
  *
  */
 public class GuavaAccessLimiter implements AccessLimiter {
 
-    private final Map<String, RateLimiter> localLimiter = new ConcurrentHashMap<>();
+    private final LimiterStore localLimiter;
+
+    public GuavaAccessLimiter() {
+        this(100000, 600);
+    }
+
+    /**
+     * @param maximumSize 限流器数量上限
+     * @param idleSeconds 空闲多久后淘汰(s)
+     */
+    public GuavaAccessLimiter(long maximumSize, long idleSeconds) {
+        this.localLimiter = new LimiterStore(maximumSize, idleSeconds);
+    }
 
     @Override
     public boolean throughLimit(String limitKey, long period, long limits) {
         return getLimiter(limitKey, period, limits).tryAcquire();
     }
 
-    private RateLimiter getLimiter(String limitKey, long period, long limits) {
-        String key = limitKey + "_" + period + "_" + limits;
-        RateLimiter limiter = localLimiter.get(key);
-        if (limiter != null) {
-            return limiter;
+    @Override
+    public long tryThrough(String limitKey, long period, long limits) {
+        GcraLimiter limiter = getLimiter(limitKey, period, limits);
+        if (limiter.tryAcquire()) {
+            return 0;
         }
-        // RateLimiter的令牌数只能以秒为单位发放，简单换算下
-        double permitsPerSecond = limits * 1000.0 / period;
-        return localLimiter.computeIfAbsent(key, k -> RateLimiter.create(permitsPerSecond));
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(limiter.retryAfterNanos()), 1);
+    }
+
+    private GcraLimiter getLimiter(String limitKey, long period, long limits) {
+        String key = limitKey + "_" + period + "_" + limits;
+        return localLimiter.get(key, TimeUnit.MILLISECONDS.toNanos(period), limits);
     }
 }
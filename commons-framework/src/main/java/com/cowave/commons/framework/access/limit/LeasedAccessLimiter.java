@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.limit;
+
+import com.cowave.commons.framework.helper.redis.StringRedisHelper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 租约限流：Redis中保存每个固定窗口的共享额度，各节点按批次租用许可，在本地用原子计数消费，用完再租
+ * <p> 每批租用剩余额度的leaseRatio（不超过leaseBatch，至少1个），额度接近上限时批次随之变小，
+ * 所以通过的请求不会超过限制，但其它节点手中未用完的许可会导致最多少放过 剩余额度 * leaseRatio * 节点数 个请求；
+ * <p> 限流key数量超出上限被淘汰，或者应用关闭时，归还未用完的许可（窗口已经结束的不归还）；
+ * 空闲超时淘汰的key不归还，否则低流量的key每个请求都要多一次归还的Redis调用，未归还的许可留到窗口结束，仍在上面的误差范围内；
+ * <p> Redis中的key追加后缀:lease（Hash），与其它算法的key区分
+ *
+ * @author shanhuiming
+ */
+@Slf4j
+public class LeasedAccessLimiter implements AccessLimiter {
+
+    // 返回 {租到的许可数, 窗口剩余时长(ms), 窗口序号}
+    public static final String LUA_LEASE = """
+            local key = KEYS[1]
+            local limit = tonumber(ARGV[1])
+            local period = tonumber(ARGV[2])
+            local ratio = tonumber(ARGV[3])
+            local maxBatch = tonumber(ARGV[4])
+            local nowData = redis.call("TIME")
+            local now = nowData[1] * 1000 + math.floor(nowData[2] / 1000)
+            local window = math.floor(now / period)
+            local ttl = (window + 1) * period - now
+            local data = redis.call("HMGET", key, "w", "u")
+            local used = 0
+            if tonumber(data[1]) == window then
+               used = tonumber(data[2]) or 0
+            end
+            local remaining = limit - used
+            if remaining <= 0 then
+               return {0, ttl, window}
+            end
+            local grant = math.floor(remaining * ratio)
+            if grant > maxBatch then
+               grant = maxBatch
+            end
+            if grant < 1 then
+               grant = 1
+            end
+            redis.call("HMSET", key, "w", window, "u", used + grant)
+            redis.call("PEXPIRE", key, ttl + 1000)
+            return {grant, ttl, window}
+            """;
+
+    // 归还许可，只在窗口没有变化时有效
+    public static final String LUA_RELEASE = """
+            local key = KEYS[1]
+            local data = redis.call("HMGET", key, "w", "u")
+            if tonumber(data[1]) ~= tonumber(ARGV[1]) then
+               return 0
+            end
+            local used = (tonumber(data[2]) or 0) - tonumber(ARGV[2])
+            if used < 0 then
+               used = 0
+            end
+            redis.call("HSET", key, "u", used)
+            return 1
+            """;
+
+    public static final String LEASE_KEY_SUFFIX = ":lease";
+
+    private final StringRedisHelper stringRedisHelper;
+
+    private final double leaseRatio;
+
+    private final long leaseBatch;
+
+    private final Cache<String, LeaseState> leases;
+
+    public LeasedAccessLimiter(StringRedisHelper stringRedisHelper, double leaseRatio, long leaseBatch, long idleSeconds) {
+        this(stringRedisHelper, leaseRatio, leaseBatch, idleSeconds, 100000);
+    }
+
+    /**
+     * @param leaseRatio  每次租用剩余额度的比例(0, 1]，越小越接近限制，Redis调用也越多
+     * @param leaseBatch  每次租用的许可上限
+     * @param idleSeconds 限流key空闲多久后淘汰(s)
+     * @param maxKeys     节点上保存租约的限流key数量上限
+     */
+    public LeasedAccessLimiter(StringRedisHelper stringRedisHelper,
+                               double leaseRatio, long leaseBatch, long idleSeconds, long maxKeys) {
+        this.stringRedisHelper = stringRedisHelper;
+        this.leaseRatio = Math.min(Math.max(leaseRatio, 0.001), 1);
+        this.leaseBatch = Math.max(leaseBatch, 1);
+        // 移除回调在触发淘汰的线程上同步执行，shutdown返回时许可已经归还
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Math.max(idleSeconds, 1), TimeUnit.SECONDS)
+                .executor(Runnable::run)
+                .removalListener((String key, LeaseState state, RemovalCause cause) -> {
+                    if (state != null && cause != RemovalCause.EXPIRED) {
+                        state.release();
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public boolean throughLimit(String limitKey, long period, long limits) {
+        return tryThrough(limitKey, period, limits) == 0;
+    }
+
+    @Override
+    public long tryThrough(String limitKey, long period, long limits) {
+        LeaseState state = leases.get(limitKey + "_" + period + "_" + limits, k -> new LeaseState(limitKey, period, limits));
+        return state.acquire();
+    }
+
+    /**
+     * 归还所有未用完的许可
+     */
+    public void shutdown() {
+        leases.invalidateAll();
+        leases.cleanUp();
+    }
+
+    private class LeaseState {
+
+        private final String redisKey;
+
+        private final long period;
+
+        private final long limits;
+
+        private volatile Lease lease;
+
+        LeaseState(String limitKey, long period, long limits) {
+            this.redisKey = limitKey + LEASE_KEY_SUFFIX;
+            this.period = Math.max(period, 1);
+            this.limits = limits;
+        }
+
+        long acquire() {
+            Lease current = lease;
+            if (current != null && current.tryAcquire()) {
+                return 0;
+            }
+            synchronized (this) {
+                current = lease;
+                if (current != null && current.tryAcquire()) {
+                    return 0;
+                }
+                // 本地窗口还没结束且上次没有租到，直接拒绝
+                if (current != null && current.exhausted && current.expireAt - System.nanoTime() > 0) {
+                    return Math.max(TimeUnit.NANOSECONDS.toMillis(current.expireAt - System.nanoTime()), 1);
+                }
+
+                List<?> result = stringRedisHelper.luaExec(LUA_LEASE, List.class, Collections.singletonList(redisKey),
+                        String.valueOf(limits), String.valueOf(period), String.valueOf(leaseRatio), String.valueOf(leaseBatch));
+                long granted = ((Number) result.get(0)).longValue();
+                long ttl = ((Number) result.get(1)).longValue();
+                long window = ((Number) result.get(2)).longValue();
+                Lease next = new Lease(window, granted, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl));
+                lease = next;
+                if (granted > 0 && next.tryAcquire()) {
+                    return 0;
+                }
+                return Math.max(ttl, 1);
+            }
+        }
+
+        synchronized void release() {
+            // 窗口已经结束时Redis中的额度也已经重新开始，不需要归还
+            Lease current = lease;
+            if (current == null || current.expireAt - System.nanoTime() <= 0) {
+                return;
+            }
+            long unused = current.drain();
+            if (unused > 0) {
+                try {
+                    stringRedisHelper.luaExec(LUA_RELEASE, Long.class, Collections.singletonList(redisKey),
+                            String.valueOf(current.window), String.valueOf(unused));
+                } catch (Exception e) {
+                    log.warn("release leased permits failed, key={}", redisKey, e);
+                }
+            }
+        }
+    }
+
+    private static class Lease {
+
+        private final long window;
+
+        private final AtomicLong permits;
+
+        private final long expireAt;
+
+        private final boolean exhausted;
+
+        Lease(long window, long permits, long expireAt) {
+            this.window = window;
+            this.permits = new AtomicLong(permits);
+            this.expireAt = expireAt;
+            this.exhausted = permits <= 0;
+        }
+
+        boolean tryAcquire() {
+            if (expireAt - System.nanoTime() <= 0) {
+                return false;
+            }
+            long current;
+            do {
+                current = permits.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!permits.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        long drain() {
+            return permits.getAndSet(0);
+        }
+    }
+}
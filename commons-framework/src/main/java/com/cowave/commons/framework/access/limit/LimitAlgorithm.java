@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.limit;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ *
+ * @author shanhuiming
+ *
+ */
+public enum LimitAlgorithm {
+
+    /**
+     * GCRA，每个key只保存一个时间戳
+     */
+    GCRA("gcra"),
+
+    /**
+     * 滑动窗口，每个key保存窗口内的所有请求
+     */
+    SLIDING_WINDOW("sliding-window"),
+
+    /**
+     * 租约，节点批量租用许可在本地消费
+     */
+    LEASE("lease");
+
+    private final String value;
+
+    LimitAlgorithm(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+}
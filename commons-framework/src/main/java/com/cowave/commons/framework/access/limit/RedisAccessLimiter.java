@@ -15,6 +15,10 @@ import lombok.RequiredArgsConstructor;
 import java.util.Collections;
 
 /**
+ * Redis限流
+ * <p> GCRA：每个key只保存一个理论到达时间(TAT)，每次一个GET和一个SET，与限制次数无关，拒绝时返回需要等待的时长；
+ * <p> 滑动窗口：每个key保存窗口内的每个请求，限制次数较大时占用的内存和每次的开销都随之增长；
+ * <p> 两种算法的数据类型不同（String / ZSET），GCRA的key追加后缀:gcra，滚动发布期间新旧节点混用时不会出现WRONGTYPE
  *
  * @author shanhuiming
  *
@@ -22,7 +26,7 @@ import java.util.Collections;
 @RequiredArgsConstructor
 public class RedisAccessLimiter implements AccessLimiter {
 
-    // 以微秒为单位进行限制
+    // 滑动窗口，以微秒为单位进行限制
     public static final String LUA_SCRIPT = """
             local key = KEYS[1]     
             local limit = tonumber(ARGV[1])  
@@ -41,11 +45,54 @@ public class RedisAccessLimiter implements AccessLimiter {
             end
             """;
 
+    // GCRA，以微秒为单位计算，返回0表示通过，否则返回需要等待的时长(ms)
+    public static final String LUA_GCRA = """
+            local key = KEYS[1]
+            local limit = tonumber(ARGV[1])
+            local period = tonumber(ARGV[2]) * 1000
+            local interval = period / limit
+            local tolerance = period - interval
+            if tolerance < 0 then
+               tolerance = 0
+            end
+            local nowData = redis.call("TIME")
+            local now = (nowData[1] * 1000000) + nowData[2]
+            local tat = tonumber(redis.call("GET", key))
+            if tat == nil or tat < now then
+               tat = now
+            end
+            local wait = tat - tolerance - now
+            if wait > 0 then
+               return math.ceil(wait / 1000)
+            end
+            local newTat = tat + interval
+            redis.call("SET", key, string.format("%.0f", newTat), "PX", math.ceil((newTat - now) / 1000) + 1)
+            return 0
+            """;
+
+    public static final String GCRA_KEY_SUFFIX = ":gcra";
+
     private final StringRedisHelper stringRedisHelper;
 
+    private final LimitAlgorithm algorithm;
+
+    public RedisAccessLimiter(StringRedisHelper stringRedisHelper) {
+        this(stringRedisHelper, LimitAlgorithm.GCRA);
+    }
+
     @Override
     public boolean throughLimit(String limitKey, long period, long limits) {
-        return stringRedisHelper.luaExec(LUA_SCRIPT, Long.class,
-                Collections.singletonList(limitKey), String.valueOf(limits), String.valueOf(period)) > 0;
+        return tryThrough(limitKey, period, limits) == 0;
+    }
+
+    @Override
+    public long tryThrough(String limitKey, long period, long limits) {
+        if (algorithm == LimitAlgorithm.SLIDING_WINDOW) {
+            Long through = stringRedisHelper.luaExec(LUA_SCRIPT, Long.class,
+                    Collections.singletonList(limitKey), String.valueOf(limits), String.valueOf(period));
+            return through > 0 ? 0 : Math.max(period, 1);
+        }
+        return stringRedisHelper.luaExec(LUA_GCRA, Long.class,
+                Collections.singletonList(limitKey + GCRA_KEY_SUFFIX), String.valueOf(limits), String.valueOf(period));
     }
 }
@@ -9,6 +9,7 @@
  */
 package com.cowave.commons.framework.access.limit;
 
+import com.cowave.commons.framework.access.AccessProperties;
 import com.cowave.commons.framework.helper.redis.RedisAutoConfiguration;
 import com.cowave.commons.framework.helper.redis.StringRedisHelper;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -30,7 +31,12 @@ public class RedisAccessLimiterConfiguration {
     @ConditionalOnBean(StringRedisHelper.class)
     @ConditionalOnMissingBean(AccessLimiter.class)
     @Bean
-    public AccessLimiter accessLimiter(StringRedisHelper stringRedisHelper){
-        return new RedisAccessLimiter(stringRedisHelper);
+    public AccessLimiter accessLimiter(StringRedisHelper stringRedisHelper, AccessProperties accessProperties){
+        AccessProperties.LimitConfig limitConfig = accessProperties.getLimit();
+        if (limitConfig.getAlgorithm() == LimitAlgorithm.LEASE) {
+            return new LeasedAccessLimiter(stringRedisHelper,
+                    limitConfig.getLeaseRatio(), limitConfig.getLeaseBatch(), limitConfig.getLeaseIdle(), limitConfig.getLeaseMaxKeys());
+        }
+        return new RedisAccessLimiter(stringRedisHelper, limitConfig.getAlgorithm());
     }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.memo;
+
+import java.lang.annotation.*;
+
+/**
+ * 请求内缓存方法的调用结果，同一个请求中相同方法和参数只调用一次
+ * <p> 结果保存在Access中，请求结束时由AccessFilter清除，通过TtlRunnable提交的异步任务共享同一份结果；
+ * <p> 不在请求中（没有Access，或者Access没有经过AccessFilter）时直接调用；异常不缓存；
+ * <p> 参数作为缓存键，需要正确实现equals/hashCode，并且调用后不要再修改；
+ * <p> 返回值在同一请求的调用方之间共享（同一个对象），调用方不能修改，需要修改时先复制
+ *
+ * @author shanhuiming
+ *
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface RequestMemo {
+
+    /**
+     * 缓存键，支持SpEL模板（如 #{#userId}），默认使用全部参数
+     */
+    String key() default "";
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.memo;
+
+import com.cowave.commons.framework.access.Access;
+import com.cowave.commons.framework.access.AccessExpressions;
+import org.apache.commons.lang3.StringUtils;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 请求内的方法调用结果缓存
+ * <p> 缓存中先放入CompletableFuture再调用，同一请求中并发的相同调用（比如异步任务中）等待第一个调用的结果，而不是各自再调用一次；
+ * <p> 同一线程在调用过程中又递归进入相同的调用时，直接调用而不是等待自己的结果；
+ * <p> 只在经过AccessFilter的请求中缓存（请求结束时才会清除），其它情况下的Access直接调用；
+ * <p> 缓存的返回值由同一请求中的所有调用方共享，调用方不能修改
+ *
+ * @author shanhuiming
+ *
+ */
+@Aspect
+@Component
+public class RequestMemoAspect {
+
+    @Pointcut("@annotation(com.cowave.commons.framework.access.memo.RequestMemo)")
+    public void pointCut() {
+
+    }
+
+    @Around("pointCut()")
+    public Object around(ProceedingJoinPoint point) throws Throwable {
+        Access access = Access.get();
+        if (access == null || !access.isAccessFiltered()) {
+            return point.proceed();
+        }
+
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
+        RequestMemo requestMemo = method.getAnnotation(RequestMemo.class);
+        MemoKey memoKey = memoKey(point.getTarget(), method, point.getArgs(), requestMemo.key());
+
+        ConcurrentHashMap<Object, Object> memo = access.memo();
+        MemoFuture future = new MemoFuture(Thread.currentThread());
+        Object existing = memo.putIfAbsent(memoKey, future);
+        if (existing != null) {
+            // 递归调用，等待的是自己的结果
+            if (existing instanceof MemoFuture memoFuture
+                    && memoFuture.owner == Thread.currentThread() && !memoFuture.isDone()) {
+                return point.proceed();
+            }
+            try {
+                return ((CompletableFuture<?>) existing).join();
+            } catch (CompletionException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            }
+        }
+
+        try {
+            Object result = point.proceed();
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // 异常不缓存，等待中的调用也抛出同样的异常
+            memo.remove(memoKey, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private MemoKey memoKey(Object target, Method method, Object[] args, String keySpel) {
+        if (StringUtils.isBlank(keySpel)) {
+            return new MemoKey(target, method, args);
+        }
+        EvaluationContext context = AccessExpressions.context(method, args);
+        Object key = AccessExpressions.template(keySpel).getValue(context);
+        return new MemoKey(target, method, new Object[]{key});
+    }
+
+    private static class MemoFuture extends CompletableFuture<Object> {
+
+        private final Thread owner;
+
+        MemoFuture(Thread owner) {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * 同一个方法在不同的bean上（比如同一接口的多个实现）分别缓存
+     */
+    private record MemoKey(Object target, Method method, Object[] args) {
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MemoKey other)) {
+                return false;
+            }
+            return target == other.target && method.equals(other.method) && Arrays.deepEquals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(target) + method.hashCode()) + Arrays.deepHashCode(args);
+        }
+    }
+}
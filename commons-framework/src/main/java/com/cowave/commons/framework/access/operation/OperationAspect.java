@@ -10,6 +10,10 @@
 package com.cowave.commons.framework.access.operation;
 
 import com.cowave.commons.framework.access.Access;
+import com.cowave.commons.framework.access.AccessExpressions;
+import com.cowave.commons.framework.access.AccessProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -17,13 +21,10 @@ import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.*;
 import org.aspectj.lang.reflect.MethodSignature;
-import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.common.TemplateParserContext;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.BeanPropertyBindingResult;
@@ -31,6 +32,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.ExtendedServletRequestDataBinder;
 
 import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.HashMap;
@@ -47,13 +49,26 @@ import java.util.Map;
 @Component
 public class OperationAspect {
 
-    private final ExpressionParser exprParser = new SpelExpressionParser();
-
     private final ApplicationContext applicationContext;
 
     @Nullable
     private final TaskExecutor taskExecutor;
 
+    private final AccessProperties accessProperties;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final ObjectMapper objectMapper;
+
+    // OperationHandler和OperationBatchHandler只查找一次
+    private volatile boolean handlerResolved;
+
+    private OperationHandler operationHandler;
+
+    private OperationBatchHandler batchHandler;
+
+    private OperationSink operationSink;
+
     @Pointcut("@annotation(com.cowave.commons.framework.access.operation.Operation) " +
             "&& (@annotation(org.springframework.web.bind.annotation.RequestMapping) " +
             "|| @annotation(org.springframework.web.bind.annotation.GetMapping) " +
@@ -72,12 +87,16 @@ public class OperationAspect {
 
     @AfterReturning(pointcut = "oplog() && @annotation(operation)", returning = "resp")
     public void doAfter(JoinPoint joinPoint, Operation operation, Object resp) {
-        EvaluationContext context = new StandardEvaluationContext();
-        // 参数信息
-        Map<String, Object> argMap = new HashMap<>();
         // 操作信息
         OperationInfo operationInfo = OperationContext.get();
         OperationContext.remove();
+        if (sinkOperation(joinPoint, operation, operationInfo, resp, null)) {
+            return;
+        }
+
+        EvaluationContext context = new StandardEvaluationContext();
+        // 参数信息
+        Map<String, Object> argMap = new HashMap<>();
 
         boolean specifyHandle = prepareOperation(joinPoint, operation, argMap, operationInfo, context);
         context.setVariable("resp", resp);
@@ -96,12 +115,16 @@ public class OperationAspect {
 
     @AfterThrowing(pointcut = "oplog() && @annotation(operation)", throwing = "e")
     public void doThrow(JoinPoint joinPoint, Operation operation, Exception e) {
-        EvaluationContext context = new StandardEvaluationContext();
-        // 参数信息
-        Map<String, Object> argMap = new HashMap<>();
         // 操作信息
         OperationInfo operationInfo = OperationContext.get();
         OperationContext.remove();
+        if (sinkOperation(joinPoint, operation, operationInfo, null, e)) {
+            return;
+        }
+
+        EvaluationContext context = new StandardEvaluationContext();
+        // 参数信息
+        Map<String, Object> argMap = new HashMap<>();
 
         boolean specifyHandle = prepareOperation(joinPoint, operation, argMap, operationInfo, context);
         context.setVariable("resp", null);
@@ -119,13 +142,13 @@ public class OperationAspect {
 
     private void handleOperation(Operation operation, EvaluationContext context){
         if(operation.isAsync() && taskExecutor != null){
-            taskExecutor.execute(() -> exprParser.parseExpression(operation.expr()).getValue(context));
+            taskExecutor.execute(() -> AccessExpressions.expression(operation.expr()).getValue(context));
         }else{
             if(operation.isAsync()){
                 log.warn("No TaskExecutor found, recording operation log synchronously");
             }
             try{
-                exprParser.parseExpression(operation.expr()).getValue(context);
+                AccessExpressions.expression(operation.expr()).getValue(context);
             }catch (Exception ex){
                 log.error("", ex);
             }
@@ -133,15 +156,14 @@ public class OperationAspect {
     }
 
     public void defaultHandle(JoinPoint joinPoint, Operation operation, OperationInfo operationInfo, Map<String, Object> argMap, Object resp, Exception e){
-        OperationHandler operationHandler;
-        try {
-            operationHandler = applicationContext.getBean(OperationHandler.class);
-        } catch (NoSuchBeanDefinitionException ex) {
+        resolveHandler();
+        OperationHandler operationHandler = this.operationHandler;
+        if (operationHandler == null) {
             Signature signature = joinPoint.getSignature();
             String className = signature.getDeclaringType().getSimpleName();
             String methodName = signature.getName();
             log.error("failed to record operation log of " + className + "." + methodName
-                    + ", neither 'handleExpr' is specified nor 'OperationHandler' is implemented");
+                    + ", neither 'handleExpr' is specified nor 'OperationHandler' or 'OperationBatchHandler' is implemented");
             return;
         }
 
@@ -159,17 +181,127 @@ public class OperationAspect {
         }
     }
 
+    /**
+     * 存在OperationBatchHandler并且没有指定handleExpr时，先让OperationBatchHandler判断是否处理，
+     * 需要时才解析操作描述和采集入参
+     */
+    private boolean sinkOperation(JoinPoint joinPoint, Operation operation, OperationInfo operationInfo, Object resp, Exception e) {
+        if (StringUtils.isNotBlank(operation.expr())) {
+            return false;
+        }
+        resolveHandler();
+        if (operationSink == null) {
+            return false;
+        }
+
+        fillOperation(operation, operationInfo);
+        operationInfo.setSuccess(e == null);
+        if (!batchHandler.accept(operationInfo, e)) {
+            return true;
+        }
+
+        boolean requireArgs = batchHandler.requireArgs(operationInfo);
+        boolean requireDesc = StringUtils.isNotBlank(operation.desc());
+        Map<String, Object> argMap = requireArgs ? new HashMap<>() : null;
+        EvaluationContext context = requireDesc ? new StandardEvaluationContext() : null;
+        if (requireArgs || requireDesc) {
+            collectArgs(joinPoint, argMap, context);
+        }
+        if (requireDesc) {
+            context.setVariable("resp", resp);
+            context.setVariable("exception", e);
+            context.setVariable("content", operationInfo.getOpContent());
+            operationInfo.setDesc(parseDesc(operation, context));
+        } else {
+            operationInfo.setDesc("");
+        }
+        sink(operation, operationInfo, argMap, batchHandler.requireResp(operationInfo) ? resp : null, e);
+        return true;
+    }
+
+    private void sink(Operation operation, OperationInfo operationInfo, Map<String, Object> argMap, Object resp, Exception e) {
+        // 在请求线程中拍下入参和返回值的快照，编码在处理线程中进行
+        int maxSize = accessProperties.getOperation().getArgsMaxSize();
+        OperationSnapshot args = argMap != null ? OperationSnapshot.capture(objectMapper, argMap, maxSize) : null;
+        OperationSnapshot respSnapshot = resp != null ? OperationSnapshot.capture(objectMapper, resp, maxSize) : null;
+        OperationRecord record = new OperationRecord(operationInfo, args, respSnapshot, e);
+        if (operation.isAsync()) {
+            operationSink.offer(record);
+        } else {
+            operationSink.handleNow(record);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (operationSink != null) {
+            operationSink.shutdown();
+        }
+    }
+
+    private void resolveHandler() {
+        if (handlerResolved) {
+            return;
+        }
+        synchronized (this) {
+            if (handlerResolved) {
+                return;
+            }
+            batchHandler = applicationContext.getBeanProvider(OperationBatchHandler.class).getIfAvailable();
+            if (batchHandler != null) {
+                AccessProperties.OperationConfig operationConfig = accessProperties.getOperation();
+                operationSink = new OperationSink(batchHandler, operationConfig.getQueueSize(), operationConfig.getBatchSize(),
+                        operationConfig.getFlushInterval(), operationConfig.getShutdownTimeout(),
+                        operationConfig.getOverflow(), meterRegistryProvider.getIfAvailable());
+            }
+            operationHandler = applicationContext.getBeanProvider(OperationHandler.class).getIfAvailable();
+            handlerResolved = true;
+        }
+    }
+
     private boolean prepareOperation(JoinPoint joinPoint, Operation operation,
                                      Map<String, Object> argMap, OperationInfo opInfo, EvaluationContext context){
+        collectArgs(joinPoint, argMap, context);
+        // 设置OperationInfo
+        fillOperation(operation, opInfo);
+
+        // handleExpr
+        String expr = operation.expr();
+        if(StringUtils.isBlank(expr)){
+            return false;
+        }
+
+        int startIndex = expr.indexOf("#") + 1;
+        int endIndex = expr.indexOf(".");
+        if(startIndex == 0 || endIndex == -1){
+            throw new RuntimeException("invalid handleExpr: " + expr);
+        }
+
+        String handlerBean = expr.substring(startIndex, endIndex);
+        if(!applicationContext.containsBean(handlerBean)){
+            throw new RuntimeException(" can't found bean of " + handlerBean + " in handleExpr: " + expr);
+        }
+
+        // 处理方法
+        context.setVariable(handlerBean, applicationContext.getBean(handlerBean));
+        return true;
+    }
+
+    private void collectArgs(JoinPoint joinPoint, @Nullable Map<String, Object> argMap, @Nullable EvaluationContext context){
         // 方法参数
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         Object[] args = joinPoint.getArgs();
         // 方法参数名
-        String[] paramNames = signature.getParameterNames();
+        String[] paramNames = AccessExpressions.parameterNames(signature.getMethod());
         // 设置EvaluationContext
         if(paramNames != null) {
             for (int i = 0; i < args.length; i++) {
-                context.setVariable(paramNames[i], args[i]);
+                if (context != null) {
+                    context.setVariable(paramNames[i], args[i]);
+                }
+                if (argMap == null) {
+                    continue;
+                }
                 if (args[i] != null) {
                     // 去掉一些不能序列化的参数，避免后面一些对argMap的操作失败
                     Class<?> clazz = args[i].getClass();
@@ -185,34 +317,14 @@ public class OperationAspect {
                 argMap.put(paramNames[i], args[i]);
             }
         }
+    }
 
-        // 设置OperationInfo
+    private void fillOperation(Operation operation, OperationInfo opInfo){
         opInfo.setOpModule(operation.module());
         opInfo.setOpType(operation.type());
         opInfo.setOpAction(operation.action());
         opInfo.setOpFlag(operation.flag());
         opInfo.setOpCost(System.currentTimeMillis() - Access.accessTime().getTime());
-
-        // handleExpr
-        String expr = operation.expr();
-        if(StringUtils.isBlank(expr)){
-            return false;
-        }
-
-        int startIndex = expr.indexOf("#") + 1;
-        int endIndex = expr.indexOf(".");
-        if(startIndex == 0 || endIndex == -1){
-            throw new RuntimeException("invalid handleExpr: " + expr);
-        }
-
-        String handlerBean = expr.substring(startIndex, endIndex);
-        if(!applicationContext.containsBean(handlerBean)){
-            throw new RuntimeException(" can't found bean of " + handlerBean + " in handleExpr: " + expr);
-        }
-
-        // 处理方法
-        context.setVariable(handlerBean, applicationContext.getBean(handlerBean));
-        return true;
     }
 
     private String parseDesc(Operation operation, EvaluationContext context){
@@ -222,7 +334,7 @@ public class OperationAspect {
         }
 
         try{
-            return exprParser.parseExpression(descSpel, new TemplateParserContext()).getValue(context, String.class);
+            return AccessExpressions.template(descSpel).getValue(context, String.class);
         }catch(Exception e){
             log.error("", e);
             return "";
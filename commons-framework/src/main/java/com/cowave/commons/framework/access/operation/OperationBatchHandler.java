@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.operation;
+
+import java.util.List;
+
+/**
+ * 批量处理操作记录，存在时优先于OperationHandler
+ * <p> 记录先进入有界队列，按数量或时间间隔批量回调，适合批量写入数据库
+ *
+ * @author shanhuiming
+ */
+public interface OperationBatchHandler {
+
+    void handle(List<OperationRecord> records);
+
+    /**
+     * 是否处理这条操作，返回false时不再解析操作描述和采集入参
+     *
+     * <p> 调用时operationInfo中只有操作模块、类型、动作、标识、耗时以及是否成功
+     */
+    default boolean accept(OperationInfo operationInfo, Exception e) {
+        return true;
+    }
+
+    /**
+     * 是否需要方法入参，返回false时不采集入参的快照
+     */
+    default boolean requireArgs(OperationInfo operationInfo) {
+        return true;
+    }
+
+    /**
+     * 是否需要方法返回值，返回false时不采集返回值的快照
+     */
+    default boolean requireResp(OperationInfo operationInfo) {
+        return true;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.operation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 待批量处理的操作记录
+ *
+ * @author shanhuiming
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class OperationRecord {
+
+    /**
+     * 操作信息
+     */
+    private OperationInfo operationInfo;
+
+    /**
+     * 方法入参的快照，OperationBatchHandler不需要入参时为null
+     */
+    private OperationSnapshot args;
+
+    /**
+     * 返回值的快照，OperationBatchHandler不需要返回值或者返回值为null时为null
+     */
+    private OperationSnapshot resp;
+
+    /**
+     * 异常
+     */
+    private Exception exception;
+}
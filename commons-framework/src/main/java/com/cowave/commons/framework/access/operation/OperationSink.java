@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.operation;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 操作记录的批量异步处理
+ * <p> 请求线程只把记录放入有界队列，后台线程攒够batchSize或者距上次处理超过flushInterval时，批量回调OperationBatchHandler；
+ * <p> 队列满时按溢出策略处理：丢弃、由请求线程直接处理、或阻塞等待（最多等待一个flushInterval，超时后丢弃）；
+ * <p> 关闭时停止接收，之后的记录由请求线程直接处理，并在超时前处理完队列中剩余的记录；
+ * 入队在读锁中进行，关闭在写锁中切换状态，所以消费线程最后一次drain之后不会再有记录进入队列
+ *
+ * @author shanhuiming
+ */
+@Slf4j
+public class OperationSink {
+
+    public static final String METRIC_QUEUE = "operation.sink.queue";
+
+    public static final String METRIC_DROPPED = "operation.sink.dropped";
+
+    public enum Overflow {
+
+        /**
+         * 丢弃
+         */
+        DROP,
+
+        /**
+         * 由请求线程直接处理
+         */
+        CALLER_RUNS,
+
+        /**
+         * 阻塞等待，最多等待一个flushInterval
+         */
+        BLOCK
+    }
+
+    private final OperationBatchHandler batchHandler;
+
+    private final BlockingQueue<OperationRecord> queue;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final long shutdownTimeoutMillis;
+
+    private final Overflow overflow;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread consumer;
+
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running = true;
+
+    public OperationSink(OperationBatchHandler batchHandler, int queueSize, int batchSize,
+                         long flushInterval, long shutdownTimeout, Overflow overflow, MeterRegistry meterRegistry) {
+        this.batchHandler = batchHandler;
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueSize, 1));
+        this.batchSize = Math.max(batchSize, 1);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(flushInterval, 1));
+        this.shutdownTimeoutMillis = shutdownTimeout;
+        this.overflow = overflow != null ? overflow : Overflow.DROP;
+        if (meterRegistry != null) {
+            Gauge.builder(METRIC_QUEUE, queue, BlockingQueue::size)
+                    .description("operation records waiting in queue").register(meterRegistry);
+            FunctionCounter.builder(METRIC_DROPPED, dropped, LongAdder::sum)
+                    .description("operation records dropped when queue is full").register(meterRegistry);
+        }
+        this.consumer = new Thread(this::consume, "operation-sink");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    public void offer(OperationRecord record) {
+        Boolean queued = enqueue(record);
+        if (queued == null) {
+            // 已经关闭
+            handle(List.of(record));
+            return;
+        }
+        if (queued) {
+            return;
+        }
+        switch (overflow) {
+            case CALLER_RUNS -> handle(List.of(record));
+            case BLOCK -> offerBlocking(record);
+            default -> dropped.increment();
+        }
+    }
+
+    /**
+     * 直接处理（同步的操作记录）
+     */
+    public void handleNow(OperationRecord record) {
+        handle(List.of(record));
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public void shutdown() {
+        // 等正在入队的请求线程完成，之后的记录都由请求线程直接处理
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        // 不中断消费线程，避免打断正在进行的批量写入，最多等一个flushInterval退出循环
+        try {
+            consumer.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("operation sink stopped with {} records unhandled", queue.size());
+        }
+    }
+
+    /**
+     * @return null表示已经关闭，false表示队列已满
+     */
+    private Boolean enqueue(OperationRecord record) {
+        stateLock.readLock().lock();
+        try {
+            if (!running) {
+                return null;
+            }
+            return queue.offer(record);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 分段等待，每段之间释放读锁，不阻塞关闭；关闭后直接处理，超过flushInterval仍然入队失败则丢弃
+     */
+    private void offerBlocking(OperationRecord record) {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        long step = Math.min(flushIntervalNanos, TimeUnit.MILLISECONDS.toNanos(10));
+        while (deadline - System.nanoTime() > 0) {
+            stateLock.readLock().lock();
+            try {
+                if (!running) {
+                    break;
+                }
+                if (queue.offer(record, step, TimeUnit.NANOSECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.increment();
+                return;
+            } finally {
+                stateLock.readLock().unlock();
+            }
+        }
+        if (!running) {
+            handle(List.of(record));
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void consume() {
+        List<OperationRecord> batch = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (running) {
+            try {
+                long remaining = deadline - System.nanoTime();
+                OperationRecord record = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (record != null) {
+                    batch.add(record);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                if (batch.size() >= batchSize || (deadline - System.nanoTime() <= 0)) {
+                    flush(batch);
+                    deadline = System.nanoTime() + flushIntervalNanos;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // 处理剩余的记录
+        queue.drainTo(batch);
+        while (!batch.isEmpty()) {
+            List<OperationRecord> part = batch.subList(0, Math.min(batchSize, batch.size()));
+            handle(new ArrayList<>(part));
+            part.clear();
+        }
+    }
+
+    private void flush(List<OperationRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        handle(new ArrayList<>(batch));
+        batch.clear();
+    }
+
+    private void handle(List<OperationRecord> records) {
+        try {
+            batchHandler.handle(records);
+        } catch (Exception e) {
+            log.error("failed to handle {} operation records", records.size(), e);
+        }
+    }
+}
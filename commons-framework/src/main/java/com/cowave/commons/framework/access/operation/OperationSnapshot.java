@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.operation;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * 方法入参、返回值的快照
+ * <p> 请求线程中只把对象写成Jackson的TokenBuffer（字段值的拷贝，之后对原对象的修改不会影响快照），不做文本编码；
+ * 写入时按json长度估算大小，超过maxSize后立即停止序列化，大对象不会被完整拷贝；
+ * <p> 第一次调用json()时（一般在批量处理线程中）才编码成json，超过maxSize的部分截断
+ *
+ * @author shanhuiming
+ */
+@Slf4j
+public class OperationSnapshot {
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxSize;
+
+    private TokenBuffer tokens;
+
+    private String json;
+
+    private boolean truncated;
+
+    private OperationSnapshot(ObjectMapper objectMapper, TokenBuffer tokens, int maxSize, boolean truncated) {
+        this.objectMapper = objectMapper;
+        this.tokens = tokens;
+        this.maxSize = maxSize;
+        this.truncated = truncated;
+    }
+
+    /**
+     * @param maxSize 快照的json长度上限（0表示不限制）
+     */
+    public static OperationSnapshot capture(ObjectMapper objectMapper, Object value, int maxSize) {
+        TokenBuffer tokens = new TokenBuffer(objectMapper, false);
+        BoundedGenerator generator = new BoundedGenerator(tokens, maxSize);
+        boolean truncated = false;
+        try {
+            objectMapper.writeValue(generator, value);
+        } catch (IOException e) {
+            if (generator.exceeded) {
+                // 保留已经写入的部分
+                truncated = true;
+            } else {
+                log.warn("failed to capture operation snapshot, {}", e.getMessage());
+                tokens = null;
+            }
+        }
+        return new OperationSnapshot(objectMapper, tokens, maxSize, truncated);
+    }
+
+    /**
+     * 快照的json，超过maxSize时截断
+     */
+    public synchronized String json() {
+        if (json == null) {
+            json = encode();
+            // 编码后不再需要快照
+            tokens = null;
+        }
+        return json;
+    }
+
+    /**
+     * json是否被截断
+     */
+    public synchronized boolean isTruncated() {
+        json();
+        return truncated;
+    }
+
+    @Override
+    public String toString() {
+        return json();
+    }
+
+    private String encode() {
+        if (tokens == null) {
+            return "{}";
+        }
+        // 截断的快照结构不完整，逐个复制事件直到结束
+        StringWriter writer = new StringWriter();
+        try (JsonParser parser = tokens.asParser(objectMapper);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            JsonToken token = parser.nextToken();
+            while (token != null) {
+                if (token == JsonToken.FIELD_NAME) {
+                    // 截断在字段名之后时，丢弃没有值的字段名
+                    String name = parser.currentName();
+                    if (parser.nextToken() == null) {
+                        break;
+                    }
+                    generator.writeFieldName(name);
+                }
+                generator.copyCurrentEvent(parser);
+                token = parser.nextToken();
+            }
+        } catch (IOException e) {
+            log.warn("failed to encode operation snapshot, {}", e.getMessage());
+            return "{}";
+        }
+        String text = writer.toString();
+        if (maxSize > 0 && text.length() > maxSize) {
+            truncated = true;
+            return text.substring(0, maxSize) + "...";
+        }
+        return truncated ? text + "..." : text;
+    }
+
+    /**
+     * 超过上限时抛出，中止序列化
+     */
+    private static class SizeExceededException extends IOException {
+
+        SizeExceededException() {
+            super("snapshot size exceeded", null, false, false);
+        }
+    }
+
+    /**
+     * 按json长度估算写入的大小（字符串、字段名按长度，其它值按固定长度）
+     */
+    private static class BoundedGenerator extends JsonGeneratorDelegate {
+
+        private static final int SCALAR_SIZE = 8;
+
+        private final int maxSize;
+
+        private long size;
+
+        private boolean exceeded;
+
+        BoundedGenerator(JsonGenerator delegate, int maxSize) {
+            super(delegate, false);
+            this.maxSize = maxSize;
+        }
+
+        private void count(long length) throws IOException {
+            size += length;
+            if (maxSize > 0 && size > maxSize) {
+                exceeded = true;
+                throw new SizeExceededException();
+            }
+        }
+
+        @Override
+        public void writeStartObject() throws IOException {
+            count(1);
+            super.writeStartObject();
+        }
+
+        @Override
+        public void writeStartObject(Object forValue) throws IOException {
+            count(1);
+            super.writeStartObject(forValue);
+        }
+
+        @Override
+        public void writeStartObject(Object forValue, int size) throws IOException {
+            count(1);
+            super.writeStartObject(forValue, size);
+        }
+
+        @Override
+        public void writeStartArray() throws IOException {
+            count(1);
+            super.writeStartArray();
+        }
+
+        @Override
+        public void writeStartArray(int size) throws IOException {
+            count(1);
+            super.writeStartArray(size);
+        }
+
+        @Override
+        public void writeStartArray(Object forValue, int size) throws IOException {
+            count(1);
+            super.writeStartArray(forValue, size);
+        }
+
+        @Override
+        public void writeFieldName(String name) throws IOException {
+            count(name.length() + 4);
+            super.writeFieldName(name);
+        }
+
+        @Override
+        public void writeFieldName(SerializableString name) throws IOException {
+            count(name.charLength() + 4);
+            super.writeFieldName(name);
+        }
+
+        @Override
+        public void writeString(String text) throws IOException {
+            count(text == null ? SCALAR_SIZE : text.length() + 3);
+            super.writeString(text);
+        }
+
+        @Override
+        public void writeString(char[] text, int offset, int len) throws IOException {
+            count(len + 3);
+            super.writeString(text, offset, len);
+        }
+
+        @Override
+        public void writeString(SerializableString text) throws IOException {
+            count(text.charLength() + 3);
+            super.writeString(text);
+        }
+
+        @Override
+        public void writeNumber(int v) throws IOException {
+            count(SCALAR_SIZE);
+            super.writeNumber(v);
+        }
+
+        @Override
+        public void writeNumber(long v) throws IOException {
+            count(SCALAR_SIZE);
+            super.writeNumber(v);
+        }
+
+        @Override
+        public void writeNumber(double v) throws IOException {
+            count(SCALAR_SIZE);
+            super.writeNumber(v);
+        }
+
+        @Override
+        public void writeNumber(float v) throws IOException {
+            count(SCALAR_SIZE);
+            super.writeNumber(v);
+        }
+
+        @Override
+        public void writeNumber(BigInteger v) throws IOException {
+            count(SCALAR_SIZE);
+            super.writeNumber(v);
+        }
+
+        @Override
+        public void writeNumber(BigDecimal v) throws IOException {
+            count(SCALAR_SIZE);
+            super.writeNumber(v);
+        }
+
+        @Override
+        public void writeBoolean(boolean state) throws IOException {
+            count(SCALAR_SIZE);
+            super.writeBoolean(state);
+        }
+
+        @Override
+        public void writeNull() throws IOException {
+            count(SCALAR_SIZE);
+            super.writeNull();
+        }
+
+        @Override
+        public void writeBinary(Base64Variant variant, byte[] data, int offset, int len) throws IOException {
+            count(len * 4L / 3 + 3);
+            super.writeBinary(variant, data, offset, len);
+        }
+    }
+}
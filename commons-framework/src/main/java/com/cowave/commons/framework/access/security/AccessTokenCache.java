@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.security;
+
+import com.cowave.commons.framework.helper.redis.RedisHelper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已校验的accessToken缓存，命中时跳过签名校验、claims解析和Redis校验
+ * <p> 以token的sha256为key，有界LRU淘汰，缓存时长不超过配置的上限，也不超过token的exp；
+ * <p> 注销记录写入Redis的ZSET（按注销时间排序），各实例定时增量同步，并从本地缓存中剔除被注销的token，
+ * 剔除后的请求重新走Redis校验，所以其它实例上的注销最多延迟一个同步间隔生效；
+ * <p> 缓存按注销记录（accessId、用户）建立索引，剔除时直接按索引失效，不遍历整个缓存；
+ * <p> 本地保留最近处理过的注销记录，put之后再检查一次，避免在Redis校验和put之间发生的注销被覆盖
+ *
+ * @author shanhuiming
+ */
+@Slf4j
+public class AccessTokenCache {
+    // {applicationName}:auth:revoked
+    public static final String AUTH_REVOKED_KEY = "%s:auth:revoked";
+
+    private static final String REVOKED_ACCESS = "a:";
+
+    private static final String REVOKED_USER = "u:";
+
+    private final Cache<HashCode, Entry> cache;
+
+    // 注销记录 -> 对应的缓存key，集合只在compute中修改
+    private final ConcurrentHashMap<String, Set<HashCode>> index = new ConcurrentHashMap<>();
+
+    // 最近处理过的注销记录 -> 处理时间，保留时长与缓存时长一致
+    private final Cache<String, Long> recentRevoked;
+
+    private final long expireMillis;
+
+    private final RedisHelper redisHelper;
+
+    private final String revokedKey;
+
+    private final long revokedRetainMillis;
+
+    private final long syncIntervalMillis;
+
+    private final ScheduledExecutorService syncExecutor;
+
+    // 只在同步线程中访问
+    private long lastSyncTime;
+
+    /**
+     * @param maximumSize     缓存数量（0表示不缓存）
+     * @param expireSeconds   缓存时长上限(s)
+     * @param syncSeconds     注销记录的同步间隔(s)
+     * @param retainSeconds   注销记录保留的时长(s)，不小于accessToken的有效时长
+     */
+    public AccessTokenCache(String applicationName, RedisHelper redisHelper,
+                            int maximumSize, long expireSeconds, long syncSeconds, long retainSeconds) {
+        this.redisHelper = redisHelper;
+        this.revokedKey = AUTH_REVOKED_KEY.formatted(applicationName);
+        this.revokedRetainMillis = TimeUnit.SECONDS.toMillis(retainSeconds);
+        this.syncIntervalMillis = TimeUnit.SECONDS.toMillis(syncSeconds);
+        this.expireMillis = TimeUnit.SECONDS.toMillis(expireSeconds);
+        this.cache = maximumSize > 0 && expireSeconds > 0 ? CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .removalListener(this::unindex)
+                .build() : null;
+        this.recentRevoked = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(maximumSize, 1))
+                .expireAfterWrite(Math.max(expireSeconds, 1), TimeUnit.SECONDS)
+                .build();
+
+        if (cache != null && redisHelper != null && syncSeconds > 0) {
+            this.lastSyncTime = System.currentTimeMillis();
+            this.syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "token-revoke-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.syncExecutor.scheduleWithFixedDelay(this::syncRevoked, syncSeconds, syncSeconds, TimeUnit.SECONDS);
+        } else {
+            this.syncExecutor = null;
+        }
+    }
+
+    public Entry get(String accessToken) {
+        if (cache == null) {
+            return null;
+        }
+        HashCode key = hash(accessToken);
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt <= System.currentTimeMillis()) {
+            cache.invalidate(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 缓存校验通过的token，保存的是用户信息的不可变快照
+     */
+    public void put(String accessToken, Claims claims, AccessUserDetails userDetails) {
+        if (cache == null) {
+            return;
+        }
+        long expireAt = System.currentTimeMillis() + expireMillis;
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            expireAt = Math.min(expireAt, expiration.getTime());
+        }
+        if (expireAt <= System.currentTimeMillis()) {
+            return;
+        }
+
+        HashCode key = hash(accessToken);
+        Entry entry = new Entry(claims, AccessUserDetails.snapshot(userDetails), expireAt);
+        cache.put(key, entry);
+        index(entry.revokedAccess, key);
+        index(entry.revokedUser, key);
+        // 先写缓存和索引再检查注销记录，与evict的顺序相反，两边至少有一边能看到对方
+        if (isRevoked(entry)) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * 注销accessToken
+     */
+    public void revokeAccess(Collection<String> accessIds) {
+        if (accessIds.isEmpty()) {
+            return;
+        }
+        Set<String> members = new HashSet<>();
+        for (String accessId : accessIds) {
+            members.add(REVOKED_ACCESS + accessId);
+        }
+        revoke(members);
+    }
+
+    /**
+     * 注销用户的所有accessToken
+     */
+    public void revokeUser(String tenantId, String authType, String userAccount) {
+        revoke(Set.of(REVOKED_USER + userKey(tenantId, authType, userAccount)));
+    }
+
+    public void shutdown() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+    }
+
+    private void revoke(Set<String> members) {
+        if (cache == null) {
+            return;
+        }
+        evict(members);
+        if (syncExecutor != null) {
+            double now = System.currentTimeMillis();
+            for (String member : members) {
+                redisHelper.putZset(revokedKey, member, now);
+            }
+        }
+    }
+
+    private void syncRevoked() {
+        try {
+            long now = System.currentTimeMillis();
+            // 往前多取一个间隔，容忍实例间的时钟偏差
+            Set<String> members = redisHelper.rangeOfZsetByScore(
+                    revokedKey, lastSyncTime - syncIntervalMillis, Double.MAX_VALUE);
+            lastSyncTime = now;
+            if (members != null && !members.isEmpty()) {
+                evict(members);
+            }
+            redisHelper.removeFromZsetByScore(revokedKey, 0, now - revokedRetainMillis);
+        } catch (Exception e) {
+            log.error("sync revoked token failed", e);
+        }
+    }
+
+    private void evict(Set<String> members) {
+        long now = System.currentTimeMillis();
+        for (String member : members) {
+            recentRevoked.put(member, now);
+        }
+        for (String member : members) {
+            Set<HashCode> keys = index.remove(member);
+            if (keys != null) {
+                cache.invalidateAll(keys);
+            }
+        }
+    }
+
+    /**
+     * accessId注销后不会再使用；用户注销只影响注销之前签发的token（iat精确到秒，同一秒签发的也当作已注销，不缓存）
+     */
+    private boolean isRevoked(Entry entry) {
+        if (recentRevoked.getIfPresent(entry.revokedAccess) != null) {
+            return true;
+        }
+        Long revokedAt = recentRevoked.getIfPresent(entry.revokedUser);
+        if (revokedAt == null) {
+            return false;
+        }
+        Date issuedAt = entry.claims.getIssuedAt();
+        return issuedAt == null || issuedAt.getTime() <= revokedAt;
+    }
+
+    private void index(String member, HashCode key) {
+        index.compute(member, (k, keys) -> {
+            if (keys == null) {
+                keys = new HashSet<>();
+            }
+            keys.add(key);
+            return keys;
+        });
+    }
+
+    private void unindex(RemovalNotification<HashCode, Entry> notification) {
+        // 同一个token重复put时，替换后的entry仍然使用原来的索引
+        Entry entry = notification.getValue();
+        if (notification.getCause() == RemovalCause.REPLACED || entry == null) {
+            return;
+        }
+        HashCode key = notification.getKey();
+        index.computeIfPresent(entry.revokedAccess, (k, keys) -> unindex(keys, key));
+        index.computeIfPresent(entry.revokedUser, (k, keys) -> unindex(keys, key));
+    }
+
+    private static Set<HashCode> unindex(Set<HashCode> keys, HashCode key) {
+        keys.remove(key);
+        return keys.isEmpty() ? null : keys;
+    }
+
+    private static HashCode hash(String accessToken) {
+        return Hashing.sha256().hashString(accessToken, StandardCharsets.UTF_8);
+    }
+
+    private static String userKey(String tenantId, String authType, String userAccount) {
+        return tenantId + ":" + authType + ":" + userAccount;
+    }
+
+    public static class Entry {
+
+        private final Claims claims;
+
+        private final AccessUserDetails userDetails;
+
+        private final String revokedAccess;
+
+        private final String revokedUser;
+
+        private final long expireAt;
+
+        Entry(Claims claims, AccessUserDetails userDetails, long expireAt) {
+            this.claims = claims;
+            this.userDetails = userDetails;
+            this.revokedAccess = REVOKED_ACCESS + userDetails.getAccessId();
+            this.revokedUser = REVOKED_USER + userKey(userDetails.getTenantId(), userDetails.getAuthType(), userDetails.getUsername());
+            this.expireAt = expireAt;
+        }
+
+        public Claims getClaims() {
+            return claims;
+        }
+
+        /**
+         * 每次返回新的副本（集合属性共享且不可修改）
+         */
+        public AccessUserDetails newUserDetails() {
+            return new AccessUserDetails(userDetails);
+        }
+    }
+}
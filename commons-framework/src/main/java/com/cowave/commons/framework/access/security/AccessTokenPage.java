@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 令牌列表分页
+ *
+ * @author shanhuiming
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class AccessTokenPage<T> {
+
+    /**
+     * 当前页令牌
+     */
+    private List<T> list;
+
+    /**
+     * 下一页游标，为空表示没有下一页
+     */
+    private String cursor;
+}
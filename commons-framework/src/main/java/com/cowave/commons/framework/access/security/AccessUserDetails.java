@@ -13,7 +13,7 @@ import cn.hutool.core.util.IdUtil;
 import com.cowave.commons.framework.access.Access;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import lombok.Data;
+import lombok.*;
 import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -197,10 +197,42 @@ public class AccessUserDetails implements UserDetails {
      */
     private String oauthName;
 
+    /**
+     * 编译后的角色和权限，第一次校验时创建，修改角色或权限时重置
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient volatile PermitMatcher permitMatcher;
+
     public AccessUserDetails(){
 
     }
 
+    public void setRoles(List<String> roles) {
+        this.roles = roles;
+        this.permitMatcher = null;
+    }
+
+    public void setPermissions(List<String> permissions) {
+        this.permissions = permissions;
+        this.permitMatcher = null;
+    }
+
+    /**
+     * 编译后的角色和权限（请通过set方法修改角色或权限，直接修改集合不会重新编译）
+     */
+    public PermitMatcher permitMatcher() {
+        PermitMatcher matcher = permitMatcher;
+        if (matcher == null) {
+            matcher = PermitMatcher.compile(roles, permissions);
+            permitMatcher = matcher;
+        }
+        return matcher;
+    }
+
     @JsonIgnore
     @Override
     public String getPassword() {
@@ -282,6 +314,62 @@ public class AccessUserDetails implements UserDetails {
         this.oauthName = refreshTokenInfo.getOauthName();
     }
 
+    /**
+     * 浅拷贝，集合属性与原对象共享
+     */
+    public AccessUserDetails(AccessUserDetails userDetails){
+        this.accessId = userDetails.accessId;
+        this.accessToken = userDetails.accessToken;
+        this.refreshId = userDetails.refreshId;
+        this.refreshToken = userDetails.refreshToken;
+        this.mfaRequired = userDetails.mfaRequired;
+        this.authType = userDetails.authType;
+        this.loginIp = userDetails.loginIp;
+        this.loginTime = userDetails.loginTime;
+        this.accessIp = userDetails.accessIp;
+        this.accessTime = userDetails.accessTime;
+        this.tenantId = userDetails.tenantId;
+        this.tenantIndex = userDetails.tenantIndex;
+        this.userId = userDetails.userId;
+        this.userCode = userDetails.userCode;
+        this.userProperties = userDetails.userProperties;
+        this.userType = userDetails.userType;
+        this.username = userDetails.username;
+        this.userNick = userDetails.userNick;
+        this.userPasswd = userDetails.userPasswd;
+        this.roles = userDetails.roles;
+        this.permissions = userDetails.permissions;
+        this.deptId = userDetails.deptId;
+        this.deptCode = userDetails.deptCode;
+        this.deptName = userDetails.deptName;
+        this.clusterId = userDetails.clusterId;
+        this.clusterLevel = userDetails.clusterLevel;
+        this.clusterName = userDetails.clusterName;
+        this.authorities = userDetails.authorities;
+        this.unique = userDetails.unique;
+        this.storeAccess = userDetails.storeAccess;
+        this.oauthId = userDetails.oauthId;
+        this.oauthName = userDetails.oauthName;
+        this.permitMatcher = userDetails.permitMatcher;
+    }
+
+    /**
+     * 拷贝，集合属性转为不可修改的副本
+     */
+    public static AccessUserDetails snapshot(AccessUserDetails userDetails){
+        AccessUserDetails snapshot = new AccessUserDetails(userDetails);
+        if(snapshot.userProperties != null){
+            snapshot.userProperties = Collections.unmodifiableMap(new HashMap<>(snapshot.userProperties));
+        }
+        if(snapshot.roles != null){
+            snapshot.roles = Collections.unmodifiableList(new ArrayList<>(snapshot.roles));
+        }
+        if(snapshot.permissions != null){
+            snapshot.permissions = Collections.unmodifiableList(new ArrayList<>(snapshot.permissions));
+        }
+        return snapshot;
+    }
+
     public <T> T getUserId(){
         return (T)userId;
     }
@@ -10,6 +10,7 @@
 package com.cowave.commons.framework.access.security;
 
 import com.cowave.commons.client.http.constants.HttpHeader;
+import com.google.common.hash.HashCode;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -42,13 +43,21 @@ public class BasicAuthFilter extends OncePerRequestFilter {
     private final TenantUserDetailsService defaultUserDetailsService;
     private final boolean basicWithConfigUser;
     private final PasswordEncoder passwordEncoder;
+    private final BasicCredentialCache credentialCache;
 
     public BasicAuthFilter(TenantUserDetailsService userDetailsService, TenantUserDetailsService defaultUserDetailsService,
                            boolean basicWithConfigUser, PasswordEncoder passwordEncoder, String[] authUrls){
+        this(userDetailsService, defaultUserDetailsService, basicWithConfigUser, passwordEncoder, authUrls, null);
+    }
+
+    public BasicAuthFilter(TenantUserDetailsService userDetailsService, TenantUserDetailsService defaultUserDetailsService,
+                           boolean basicWithConfigUser, PasswordEncoder passwordEncoder, String[] authUrls,
+                           BasicCredentialCache credentialCache){
         this.userDetailsService = userDetailsService;
         this.defaultUserDetailsService = defaultUserDetailsService;
         this.basicWithConfigUser = basicWithConfigUser;
         this.passwordEncoder = passwordEncoder;
+        this.credentialCache = credentialCache;
         if(ArrayUtils.isNotEmpty(authUrls)){
             Arrays.stream(authUrls).map(AntPathRequestMatcher::new).forEach(authMatchers::add);
         }
@@ -78,6 +87,7 @@ public class BasicAuthFilter extends OncePerRequestFilter {
             return;
         }
 
+        HashCode cacheKey = credentialCache != null ? credentialCache.key(basicHeader) : null;
         basicHeader = new String(Base64.getDecoder().decode(basicHeader.substring(6)), StandardCharsets.UTF_8);
         String[] array = basicHeader.split(":", 2);
         String username = array[0];
@@ -87,18 +97,28 @@ public class BasicAuthFilter extends OncePerRequestFilter {
             if(basicWithConfigUser){
                 userDetails = defaultUserDetailsService.loadTenantUserByUsername(null, username);
             }else{
-                userDetailsService.loadTenantUserByUsername(null, username);
+                userDetails = userDetailsService.loadTenantUserByUsername(null, username);
             }
 
             if (userDetails == null) {
+                if (cacheKey != null) {
+                    credentialCache.invalidate(cacheKey);
+                }
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.setHeader("WWW-Authenticate", "Basic realm=\"User not exist!\"");
                 return;
             }
-            if (!passwordEncoder.matches(password, userDetails.getPassword())) {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                response.setHeader("WWW-Authenticate", "Basic realm=\"Password not correct!\"");
-                return;
+            // 缓存命中且密码编码没有变化时，跳过密码校验
+            boolean verified = cacheKey != null && credentialCache.verified(cacheKey, userDetails);
+            if (!verified) {
+                if (!passwordEncoder.matches(password, userDetails.getPassword())) {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    response.setHeader("WWW-Authenticate", "Basic realm=\"Password not correct!\"");
+                    return;
+                }
+                if (cacheKey != null) {
+                    credentialCache.put(cacheKey, userDetails);
+                }
             }
             UsernamePasswordAuthenticationToken authentication =
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
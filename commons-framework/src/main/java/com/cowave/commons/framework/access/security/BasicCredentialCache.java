@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * basic认证通过的凭据缓存，命中时跳过密码校验（BCrypt等编码每次校验要消耗几十毫秒）
+ * <p> 以Authorization头的HMAC为key（密钥在进程启动时随机生成），缓存中不保存明文凭据；
+ * <p> 缓存的是校验通过时用户的密码编码，命中后仍然重新加载用户，密码编码变化或用户不存在时剔除并重新校验
+ *
+ * @author shanhuiming
+ */
+public class BasicCredentialCache {
+
+    private final HashFunction hmac;
+
+    private final Cache<HashCode, String> cache;
+
+    /**
+     * @param maximumSize   缓存数量
+     * @param expireSeconds 缓存时长(s)
+     */
+    public BasicCredentialCache(int maximumSize, long expireSeconds) {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.hmac = Hashing.hmacSha256(key);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public HashCode key(String authorization) {
+        return hmac.hashString(authorization, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 凭据是否已经校验通过，且用户的密码编码没有变化
+     */
+    public boolean verified(HashCode key, UserDetails userDetails) {
+        String encodedPassword = cache.getIfPresent(key);
+        if (encodedPassword == null) {
+            return false;
+        }
+        if (userDetails == null || userDetails.getPassword() == null || !MessageDigest.isEqual(
+                encodedPassword.getBytes(StandardCharsets.UTF_8), userDetails.getPassword().getBytes(StandardCharsets.UTF_8))) {
+            cache.invalidate(key);
+            return false;
+        }
+        return true;
+    }
+
+    public void put(HashCode key, UserDetails userDetails) {
+        if (userDetails.getPassword() != null) {
+            cache.put(key, userDetails.getPassword());
+        }
+    }
+
+    public void invalidate(HashCode key) {
+        cache.invalidate(key);
+    }
+}
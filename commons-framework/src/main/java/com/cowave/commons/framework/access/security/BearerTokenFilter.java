@@ -10,20 +10,15 @@
 package com.cowave.commons.framework.access.security;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 /**
@@ -33,7 +28,9 @@ import org.springframework.web.filter.OncePerRequestFilter;
  */
 public class BearerTokenFilter extends OncePerRequestFilter {
 
-    private final List<AntPathRequestMatcher> permitAllMatchers = new ArrayList<>();
+    private static final int IGNORE_CACHE_SIZE = 4096;
+
+    private final IgnoreUrlMatcher ignoreUrlMatcher;
 
     private final BearerTokenService bearerTokenService;
 
@@ -42,18 +39,14 @@ public class BearerTokenFilter extends OncePerRequestFilter {
     public BearerTokenFilter(boolean useRefreshToken, BearerTokenService bearerTokenService, String[] ignoreUrls) {
         this.useRefreshToken = useRefreshToken;
         this.bearerTokenService = bearerTokenService;
-        if(ArrayUtils.isNotEmpty(ignoreUrls)){
-            Arrays.stream(ignoreUrls).map(AntPathRequestMatcher::new).forEach(permitAllMatchers::add);
-        }
+        this.ignoreUrlMatcher = new IgnoreUrlMatcher(ignoreUrls, IGNORE_CACHE_SIZE);
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
-        for (AntPathRequestMatcher matcher : permitAllMatchers) {
-            if (matcher.matches(request)) {
-                chain.doFilter(request, response);
-                return;
-            }
+        if (ignoreUrlMatcher.matches(request)) {
+            chain.doFilter(request, response);
+            return;
         }
         bearerAuth(request, response, chain);
     }
@@ -103,6 +103,11 @@ public interface BearerTokenService {
      */
     String CLAIM_USER_PERM = "um";
 
+    /**
+     * 用户角色和权限的摘要
+     */
+    String CLAIM_PERMIT_DIGEST = "pd";
+
     /**
      * 部门id
      */
@@ -212,4 +217,24 @@ public interface BearerTokenService {
      * 获取OAuthToken列表
      */
     List<RefreshTokenInfo> listOauthToken(String tenantId);
+
+    /**
+     * 分页获取AccessToken列表，按最近活动时间倒序
+     *
+     * @param authType    授权类型，和userAccount都指定时只查询该用户
+     * @param userAccount 用户账号
+     * @param cursor      上一页返回的游标，第一页为空（查询租户时为 分值:数量，查询用户时为偏移，不能混用）
+     * @param size        每页数量
+     */
+    AccessTokenPage<AccessTokenInfo> pageAccessToken(String tenantId, String authType, String userAccount, String cursor, int size);
+
+    /**
+     * 分页获取RefreshToken列表，按最近活动时间倒序
+     */
+    AccessTokenPage<RefreshTokenInfo> pageRefreshToken(String tenantId, String authType, String userAccount, String cursor, int size);
+
+    /**
+     * 分页获取OAuthToken列表，按最近活动时间倒序
+     */
+    AccessTokenPage<RefreshTokenInfo> pageOauthToken(String tenantId, String authType, String userAccount, String cursor, int size);
 }
@@ -23,6 +23,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.*;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.http.MediaType;
 
 import javax.servlet.http.HttpServletResponse;
@@ -39,21 +40,276 @@ import static com.cowave.commons.framework.access.security.AuthMode.ACCESS_REFRE
  */
 @RequiredArgsConstructor
 public class BearerTokenServiceImpl implements BearerTokenService {
+    // 同一用户的令牌key使用相同的hash tag {tenantId:type:userAccount}，在Redis Cluster中落在同一个slot，可以在一个脚本中操作
+    // {applicationName}:auth:{tenantId:type:userAccount}:access:{accessId}
+    public static final String AUTH_ACCESS_KEY = "%s:auth:{%s:%s:%s}:access:%s";
+    // {applicationName}:auth:{tenantId:type:userAccount}:refresh
+    public static final String AUTH_REFRESH_KEY = "%s:auth:{%s:%s:%s}:refresh";
+    // {applicationName}:auth:{tenantId:type:userAccount}:refresh-id，当前的refreshId（原样保存，刷新时比对）
+    public static final String AUTH_REFRESH_ID_KEY = "%s:auth:{%s:%s:%s}:refresh-id";
+    // {applicationName}:auth:{tenantId:type:userAccount}:oauth:{appId}
+    public static final String AUTH_OAUTH_KEY = "%s:auth:{%s:%s:%s}:oauth:%s";
+    // {applicationName}:auth:{tenantId:type:userAccount}:session，用户的所有令牌key
+    public static final String AUTH_SESSION_KEY = "%s:auth:{%s:%s:%s}:session";
+    // {applicationName}:auth:{tenantId}:index:{access|refresh|oauth}，租户的令牌key，按最近活动时间排序
+    public static final String AUTH_INDEX_KEY = "%s:auth:%s:index:%s";
+    private static final String INDEX_ACCESS = "access";
+    private static final String INDEX_REFRESH = "refresh";
+    private static final String INDEX_OAUTH = "oauth";
+    // 升级前没有hash tag的key，启动后的一个令牌有效期内，新key不存在时读取一次，读到的令牌迁移到新key（或被删除）
     // {applicationName}:auth:{tenantId}:access:{type}:{userAccount}:{accessId}
-    public static final String AUTH_ACCESS_KEY = "%s:auth:%s:access:%s:%s:%s";
+    private static final String LEGACY_ACCESS_KEY = "%s:auth:%s:access:%s:%s:%s";
     // {applicationName}:auth:{tenantId}:refresh:{type}:{userAccount}
-    public static final String AUTH_REFRESH_KEY = "%s:auth:%s:refresh:%s:%s";
+    private static final String LEGACY_REFRESH_KEY = "%s:auth:%s:refresh:%s:%s";
     // {applicationName}:auth:{tenantId}:oauth:{type}:{userAccount}:{appId}
-    public static final String AUTH_OAUTH_KEY = "%s:auth:%s:oauth:%s:%s:%s";
+    private static final String LEGACY_OAUTH_KEY = "%s:auth:%s:oauth:%s:%s:%s";
+
+    // 用户会话索引是ZSET（令牌key，最近活动时间），下面的脚本只操作同一个用户的key（相同的hash tag），且都在KEYS中声明，
+    // 需要操作会话中的令牌时先读取会话索引，再把令牌key作为KEYS传给脚本；
+    // 租户索引在另一个slot，由单独的命令更新，允许短暂不一致：分页时跳过并清理已不存在的令牌
+
+    // KEYS[1]：用户会话索引，KEYS[2]：本次令牌，KEYS[3..]：需要更新的已有令牌（只在仍存在时更新）
+    // ARGV[1]：令牌超时(s)，ARGV[2]：用户会话索引超时(s)，ARGV[3]：当前时间(ms)，ARGV[4..]：对应KEYS[2..]的令牌内容
+    private static final String LUA_SESSION_PUT = """
+            local expire = tonumber(ARGV[1])
+            local sessionExpire = tonumber(ARGV[2])
+            local now = tonumber(ARGV[3])
+            redis.call("SET", KEYS[2], ARGV[4], "EX", expire)
+            redis.call("ZADD", KEYS[1], now, KEYS[2])
+            for i = 3, #KEYS do
+                redis.call("SET", KEYS[i], ARGV[i + 2], "EX", expire, "XX")
+            end
+            redis.call("ZREMRANGEBYSCORE", KEYS[1], "-inf", "(" .. (now - sessionExpire * 1000))
+            redis.call("EXPIRE", KEYS[1], sessionExpire)
+            return 1
+            """;
+
+    // KEYS[1]：用户会话索引，KEYS[2]：refreshToken，KEYS[3]：refreshId
+    // ARGV[1]：refreshToken超时(s)，ARGV[2]：用户会话索引超时(s)，ARGV[3]：当前时间(ms)，ARGV[4]：refreshToken内容，ARGV[5]：refreshId
+    private static final String LUA_REFRESH_PUT = """
+            local expire = tonumber(ARGV[1])
+            local sessionExpire = tonumber(ARGV[2])
+            local now = tonumber(ARGV[3])
+            redis.call("SET", KEYS[2], ARGV[4], "EX", expire)
+            redis.call("SET", KEYS[3], ARGV[5], "EX", expire)
+            redis.call("ZADD", KEYS[1], now, KEYS[2])
+            redis.call("ZREMRANGEBYSCORE", KEYS[1], "-inf", "(" .. (now - sessionExpire * 1000))
+            redis.call("EXPIRE", KEYS[1], sessionExpire)
+            return 1
+            """;
+
+    // KEYS[1]：用户会话索引，返回会话中的令牌key（按最近活动时间倒序）
+    private static final String LUA_SESSION_MEMBERS = """
+            return redis.call("ZREVRANGE", KEYS[1], 0, -1)
+            """;
+
+    // KEYS[1]：用户会话索引，KEYS[2..]：会话中匹配的令牌key（按最近活动时间倒序），ARGV[1]：偏移，ARGV[2]：数量
+    // 返回 {下一页偏移（-1表示没有下一页），令牌内容...}，顺便清理已不存在的令牌
+    private static final String LUA_SESSION_PAGE = """
+            local offset = tonumber(ARGV[1])
+            local count = tonumber(ARGV[2])
+            local result = {-1}
+            local matched = 0
+            for i = 2, #KEYS do
+                local value = redis.call("GET", KEYS[i])
+                if not value then
+                    redis.call("ZREM", KEYS[1], KEYS[i])
+                else
+                    matched = matched + 1
+                    if matched > offset + count then
+                        result[1] = offset + count
+                        break
+                    end
+                    if matched > offset then
+                        table.insert(result, value)
+                    end
+                end
+            end
+            return result
+            """;
+
+    // KEYS[1]：用户会话索引，KEYS[2..]：删除的令牌
+    private static final String LUA_SESSION_REMOVE = """
+            for i = 2, #KEYS do
+                redis.call("DEL", KEYS[i])
+                redis.call("ZREM", KEYS[1], KEYS[i])
+            end
+            return 1
+            """;
+
+    // KEYS[1]：用户会话索引，KEYS[2..]：删除的令牌（会话中的令牌以及refreshId等不在会话中的key）
+    // 返回会话中剩下的令牌数（读取会话之后新加入的），没有剩下时删除会话索引
+    private static final String LUA_SESSION_CLEAR = """
+            for i = 2, #KEYS do
+                redis.call("DEL", KEYS[i])
+                redis.call("ZREM", KEYS[1], KEYS[i])
+            end
+            local remaining = redis.call("ZCARD", KEYS[1])
+            if remaining == 0 then
+                redis.call("DEL", KEYS[1])
+            end
+            return remaining
+            """;
+
+    // KEYS[1]：租户索引，ARGV[1]：当前时间(ms)，ARGV[2]：过期的分值，ARGV[3..]：令牌key
+    private static final String LUA_INDEX_ADD = """
+            for i = 3, #ARGV do
+                redis.call("ZADD", KEYS[1], ARGV[1], ARGV[i])
+            end
+            redis.call("ZREMRANGEBYSCORE", KEYS[1], "-inf", "(" .. ARGV[2])
+            return 1
+            """;
+
+    // KEYS[1]：租户索引，ARGV[1]：当前时间(ms)，ARGV[2]：过期的分值，ARGV[3]：删除的令牌key，ARGV[4]：添加的令牌key
+    private static final String LUA_INDEX_REPLACE = """
+            redis.call("ZREM", KEYS[1], ARGV[3])
+            redis.call("ZADD", KEYS[1], ARGV[1], ARGV[4])
+            redis.call("ZREMRANGEBYSCORE", KEYS[1], "-inf", "(" .. ARGV[2])
+            return 1
+            """;
+
+    // KEYS[1]：租户索引，ARGV[1..]：令牌key
+    private static final String LUA_INDEX_REMOVE = """
+            for i = 1, #ARGV do
+                redis.call("ZREM", KEYS[1], ARGV[i])
+            end
+            return 1
+            """;
+
+    // KEYS[1]：租户索引，ARGV[1]：游标分值，ARGV[2]：游标分值上已返回的数量，ARGV[3]：数量，ARGV[4]：过期的分值
+    // 返回 {下一页游标分值（-1表示没有下一页），下一页游标分值上已返回的数量，令牌key...}，令牌内容由调用方读取（在其它slot）
+    private static final String LUA_INDEX_PAGE = """
+            redis.call("ZREMRANGEBYSCORE", KEYS[1], "-inf", "(" .. ARGV[4])
+            local cursor = tonumber(ARGV[1])
+            local skip = tonumber(ARGV[2])
+            local count = tonumber(ARGV[3])
+            local members = redis.call("ZREVRANGEBYSCORE", KEYS[1], ARGV[1], "-inf", "WITHSCORES", "LIMIT", skip, count)
+            local result = {-1, 0}
+            local lastScore = nil
+            local lastCount = 0
+            for i = 1, #members, 2 do
+                local score = tonumber(members[i + 1])
+                if score == lastScore then
+                    lastCount = lastCount + 1
+                else
+                    lastScore = score
+                    lastCount = 1
+                end
+                table.insert(result, members[i])
+            end
+            if #members / 2 == count then
+                result[1] = lastScore
+                if lastScore == cursor then
+                    result[2] = skip + lastCount
+                else
+                    result[2] = lastCount
+                end
+            end
+            return result
+            """;
+
+    // KEYS[1]：refreshToken，KEYS[2]：refreshId，KEYS[3]：用户会话索引，KEYS[4]：新的accessToken，KEYS[5]：当前的accessToken（可选）
+    // ARGV[1]：期望的refreshId（为空不比对），ARGV[2]：refreshToken超时(s)，ARGV[3]：accessToken超时(s，0表示不保存)，
+    // ARGV[4]：用户会话索引超时(s)，ARGV[5]：当前时间(ms)，ARGV[6]：新的accessId，ARGV[7]：新的refreshId，
+    // ARGV[8]：新的accessToken内容（userName为null，由脚本从保存的refreshToken中填入）
+    // 返回 {1, 轮换后的refreshToken内容}：成功，{0}：refreshToken不存在，{-1}：refreshToken已被刷新
+    // 保存的refreshToken在轮换时只有accessId和refreshId变化，直接在json文本中替换这两个字段，不经过cjson重新编码（避免长整数丢失精度）
+    private static final String LUA_REFRESH_ROTATE = """
+            local record = redis.call("GET", KEYS[1])
+            if not record then
+                return {0}
+            end
+            if ARGV[1] ~= "" and redis.call("GET", KEYS[2]) ~= ARGV[1] then
+                return {-1}
+            end
+            local info = cjson.decode(record)
+            local function field(name)
+                local value = info[name]
+                if value == nil then
+                    value = cjson.null
+                end
+                return cjson.encode(value)
+            end
+            local function replace(text, name, old, new)
+                local from = '"' .. name .. '":' .. old
+                local s, e = string.find(text, from, 1, true)
+                if not s then
+                    return nil
+                end
+                return string.sub(text, 1, s - 1) .. '"' .. name .. '":' .. new .. string.sub(text, e + 1)
+            end
+            local rotated = replace(record, "accessId", field("accessId"), cjson.encode(ARGV[6]))
+            if rotated then
+                rotated = replace(rotated, "refreshId", field("refreshId"), cjson.encode(ARGV[7]))
+            end
+            if not rotated then
+                return redis.error_reply("unexpected refresh token format: " .. KEYS[1])
+            end
+
+            local now = tonumber(ARGV[5])
+            local refreshExpire = tonumber(ARGV[2])
+            redis.call("SET", KEYS[1], rotated, "EX", refreshExpire)
+            redis.call("SET", KEYS[2], ARGV[7], "EX", refreshExpire)
+            redis.call("ZADD", KEYS[3], now, KEYS[1])
+            local accessExpire = tonumber(ARGV[3])
+            if accessExpire > 0 then
+                if #KEYS >= 5 then
+                    redis.call("DEL", KEYS[5])
+                    redis.call("ZREM", KEYS[3], KEYS[5])
+                end
+                local access = replace(ARGV[8], "userName", "null", field("userName")) or ARGV[8]
+                redis.call("SET", KEYS[4], access, "EX", accessExpire)
+                redis.call("ZADD", KEYS[3], now, KEYS[4])
+            end
+            redis.call("EXPIRE", KEYS[3], tonumber(ARGV[4]))
+            return {1, rotated}
+            """;
+
     private final ApplicationProperties applicationProperties;
     private final AccessProperties accessProperties;
     private final AccessIdGenerator accessIdGenerator;
     private final ObjectMapper objectMapper;
     private final RedisHelper redisHelper;
     private final BearerTokenInterceptor bearerTokenInterceptor;
+    private final AccessTokenCache accessTokenCache;
+    private final PermitDigestCache permitDigestCache;
+    // 启动后超过令牌的有效期，就不会再有升级前保存的令牌，不再读取旧key
+    private final long startedAt = System.currentTimeMillis();
 
     @Override
     public void assignAccessToken(AccessUserDetails userDetails) {
+        signAccessToken(userDetails);
+
+        // 服务端保存
+        if (userDetails.isStoreAccess() && redisHelper != null) {
+            String tenantId = userDetails.getTenantId();
+            String authType = userDetails.getAuthType();
+            String userAccount = userDetails.getUsername();
+            AccessTokenInfo accessTokenInfo = new AccessTokenInfo(userDetails);
+            String accessKey = getAccessTokenKey(tenantId, authType, userAccount, userDetails.getAccessId());
+            // 注销其它令牌
+            Map<String, Object> revokedTokens = new LinkedHashMap<>();
+            if (userDetails.isUnique()) {
+                List<AccessTokenInfo> accessTokenList = listSessionToken(tenantId, authType, userAccount,
+                        getAccessTokenKey(tenantId, authType, userAccount, ""));
+                for(AccessTokenInfo token : accessTokenList){
+                    if(token.getRevoked() == 0){
+                        token.setRevoked(2);
+                        revokedTokens.put(getAccessTokenKey(tenantId, authType, userAccount, token.getAccessId()), token);
+                    }
+                }
+            }
+            // 存入本次令牌
+            putSessionToken(tenantId, authType, userAccount,
+                    INDEX_ACCESS, accessKey, accessTokenInfo, accessProperties.accessExpire(), revokedTokens);
+            if (!revokedTokens.isEmpty()) {
+                accessTokenCache.revokeAccess(revokedTokens.values().stream()
+                        .map(token -> ((AccessTokenInfo) token).getAccessId()).toList());
+            }
+        }
+    }
+
+    private void signAccessToken(AccessUserDetails userDetails) {
         String tenantId = userDetails.getTenantId();
         String authType = userDetails.getAuthType();
         String userAccount = userDetails.getUsername();
@@ -70,14 +326,13 @@ public class BearerTokenServiceImpl implements BearerTokenService {
                 .claim(CLAIM_USER_TYPE, userDetails.getUserType())
                 .claim(CLAIM_USER_NAME, userDetails.getUserNick())
                 .claim(CLAIM_USER_ACCOUNT, userAccount)
-                .claim(CLAIM_USER_ROLE, userDetails.getRoles())
-                .claim(CLAIM_USER_PERM, userDetails.getPermissions())
                 .claim(CLAIM_DEPT_ID, userDetails.getDeptId())
                 .claim(CLAIM_DEPT_CODE, userDetails.getDeptCode())
                 .claim(CLAIM_DEPT_NAME, userDetails.getDeptName())
                 .claim(CLAIM_CLUSTER_ID, userDetails.getClusterId())
                 .claim(CLAIM_CLUSTER_LEVEL, userDetails.getClusterLevel())
                 .claim(CLAIM_CLUSTER_NAME, userDetails.getClusterName());
+        permitClaims(jwtBuilder, userDetails);
         if (bearerTokenInterceptor != null) {
             bearerTokenInterceptor.additionalAccessClaims(jwtBuilder);
         }
@@ -100,26 +355,6 @@ public class BearerTokenServiceImpl implements BearerTokenService {
         if ("cookie".equals(accessProperties.tokenStore())) {
             Access.setCookie(accessProperties.tokenKey(), accessToken, "/", accessProperties.accessExpire());
         }
-
-        // 服务端保存
-        if (userDetails.isStoreAccess() && redisHelper != null) {
-            AccessTokenInfo accessTokenInfo = new AccessTokenInfo(userDetails);
-            String accessKey = getAccessTokenKey(
-                    userDetails.getTenantId(), userDetails.getAuthType(), userDetails.getUsername(), userDetails.getAccessId());
-            // 注销其它令牌
-            if (userDetails.isUnique()) {
-                List<AccessTokenInfo> accessTokenList = redisHelper.getByPattern(
-                        applicationProperties.getName() + ":auth:" + tenantId + ":access:" + authType + ":" + userAccount + ":*");
-                Map<String, AccessTokenInfo> accessTokenMap = new HashMap<>();
-                for(AccessTokenInfo token : accessTokenList){
-                    token.setRevoked(2);
-                    accessTokenMap.put(getAccessTokenKey(tenantId, authType, userAccount, token.getAccessId()), token);
-                }
-                redisHelper.putMultiExpire(accessTokenMap, accessProperties.accessExpire(), TimeUnit.SECONDS);
-            }
-            // 存入本次令牌
-            redisHelper.putExpire(accessKey, accessTokenInfo, accessProperties.accessExpire(), TimeUnit.SECONDS);
-        }
     }
 
     @Override
@@ -129,11 +364,31 @@ public class BearerTokenServiceImpl implements BearerTokenService {
     }
 
     private void assignRefreshToken(AccessUserDetails userDetails) {
+        signRefreshToken(userDetails);
+        // 服务端保存
+        if (redisHelper != null) {
+            String tenantId = userDetails.getTenantId();
+            String authType = userDetails.getAuthType();
+            String userAccount = userDetails.getUsername();
+            String refreshKey = getRefreshTokenKey(tenantId, authType, userAccount);
+            redisHelper.luaExec(LUA_REFRESH_PUT, Long.class, List.of(getSessionKey(tenantId, authType, userAccount),
+                            refreshKey, getRefreshIdKey(tenantId, authType, userAccount)),
+                    accessProperties.refreshExpire(),
+                    Math.max(accessProperties.accessExpire(), accessProperties.refreshExpire()),
+                    System.currentTimeMillis(),
+                    new RefreshTokenInfo(userDetails),
+                    userDetails.getRefreshId());
+            addIndexToken(tenantId, INDEX_REFRESH, accessProperties.refreshExpire(), refreshKey);
+        }
+    }
+
+    private void signRefreshToken(AccessUserDetails userDetails) {
         JwtBuilder jwtBuilder = Jwts.builder()
                 .claim(CLAIM_UNIQUE, userDetails.isUnique() ? 1 : 0)
                 .claim(CLAIM_ACCESS_STORE, userDetails.isStoreAccess() ? 1 : 0)
                 .claim(CLAIM_TYPE, userDetails.getAuthType())
                 .claim(CLAIM_REFRESH_ID, userDetails.getRefreshId())
+                .claim(CLAIM_ACCESS_ID, userDetails.getAccessId())
                 .claim(CLAIM_USER_ACCOUNT, userDetails.getUsername())
                 .claim(CLAIM_TENANT_ID, userDetails.getTenantId());
 
@@ -145,12 +400,6 @@ public class BearerTokenServiceImpl implements BearerTokenService {
                 .signWith(SignatureAlgorithm.HS512, accessProperties.refreshSecret())
                 .compact();
         userDetails.setRefreshToken(refreshToken);
-        // 服务端保存
-        if (redisHelper != null) {
-            RefreshTokenInfo refreshTokenInfo = new RefreshTokenInfo(userDetails);
-            String refreshKey = getRefreshTokenKey(userDetails.getTenantId(), userDetails.getAuthType(), userDetails.getUsername());
-            redisHelper.putExpire(refreshKey, refreshTokenInfo, accessProperties.refreshExpire(), TimeUnit.SECONDS);
-        }
     }
 
     public void assignOauthToken(AccessUserDetails userDetails) {
@@ -172,14 +421,13 @@ public class BearerTokenServiceImpl implements BearerTokenService {
                 .claim(CLAIM_USER_TYPE, userDetails.getUserType())
                 .claim(CLAIM_USER_NAME, userDetails.getUserNick())
                 .claim(CLAIM_USER_ACCOUNT, userAccount)
-                .claim(CLAIM_USER_ROLE, userDetails.getRoles())
-                .claim(CLAIM_USER_PERM, userDetails.getPermissions())
                 .claim(CLAIM_DEPT_ID, userDetails.getDeptId())
                 .claim(CLAIM_DEPT_CODE, userDetails.getDeptCode())
                 .claim(CLAIM_DEPT_NAME, userDetails.getDeptName())
                 .claim(CLAIM_CLUSTER_ID, userDetails.getClusterId())
                 .claim(CLAIM_CLUSTER_LEVEL, userDetails.getClusterLevel())
                 .claim(CLAIM_CLUSTER_NAME, userDetails.getClusterName());
+        permitClaims(oauthAccessBuilder, userDetails);
         String oauthAccess = oauthAccessBuilder
                 .setIssuedAt(new Date())
                 .signWith(SignatureAlgorithm.HS512, accessProperties.accessSecret())
@@ -204,8 +452,9 @@ public class BearerTokenServiceImpl implements BearerTokenService {
         // 服务端保存
         if (redisHelper != null) {
             RefreshTokenInfo refreshTokenInfo = new RefreshTokenInfo(userDetails);
-            String oauthKey = getOauthTokenKey(userDetails.getTenantId(), userDetails.getAuthType(), userDetails.getUsername(), userDetails.getOauthId());
-            redisHelper.putExpire(oauthKey, refreshTokenInfo, accessProperties.refreshExpire(), TimeUnit.SECONDS);
+            String oauthKey = getOauthTokenKey(tenantId, authType, userAccount, userDetails.getOauthId());
+            putSessionToken(tenantId, authType, userAccount,
+                    INDEX_OAUTH, oauthKey, refreshTokenInfo, accessProperties.refreshExpire(), Map.of());
         }
     }
 
@@ -213,8 +462,9 @@ public class BearerTokenServiceImpl implements BearerTokenService {
     public String refreshAccessToken() throws Exception {
         AccessUserDetails userDetails = parseAccessToken(null);
         if (userDetails.isStoreAccess() && redisHelper != null) {
-            redisHelper.delete(getAccessTokenKey(userDetails.getTenantId(),
-                    userDetails.getAuthType(), userDetails.getUsername(), userDetails.getAccessId()));
+            removeSessionToken(userDetails.getTenantId(), userDetails.getAuthType(), userDetails.getUsername(), INDEX_ACCESS,
+                    getAccessTokenKey(userDetails.getTenantId(), userDetails.getAuthType(), userDetails.getUsername(), userDetails.getAccessId()));
+            accessTokenCache.revokeAccess(List.of(userDetails.getAccessId()));
         }
         userDetails.setAccessId(IdUtil.fastSimpleUUID());
         userDetails.setAccessIp(Access.accessIp());
@@ -242,31 +492,77 @@ public class BearerTokenServiceImpl implements BearerTokenService {
         Integer store = (Integer) claims.get(CLAIM_ACCESS_STORE);
         assert redisHelper != null;
 
-        // 获取服务保存的Token
-        RefreshTokenInfo refreshTokenInfo = redisHelper.getValue(getRefreshTokenKey(tenantId, type, userAccount));
-        if (refreshTokenInfo == null) {
-            throw new HttpHintException(UNAUTHORIZED, "{frame.auth.refresh.empty}");
+        // 令牌中没有accessId时（升级前签发的refreshToken），先读取保存的Token获取当前的accessId，之后的轮换不再需要
+        String accessId = (String) claims.get(CLAIM_ACCESS_ID);
+        String refreshKey = getRefreshTokenKey(tenantId, type, userAccount);
+        if (accessId == null) {
+            RefreshTokenInfo stored = redisHelper.getValue(refreshKey);
+            if (stored == null) {
+                stored = migrateLegacyRefresh(tenantId, type, userAccount);
+            }
+            if (stored == null) {
+                throw new HttpHintException(UNAUTHORIZED, "{frame.auth.refresh.empty}");
+            }
+            accessId = stored.getAccessId();
         }
 
-        // 比对id，判断Token是否已经被刷新过
-        if (unique == 1 && !Objects.equals(refreshId, refreshTokenInfo.getRefreshId())) {
-            throw new HttpHintException(UNAUTHORIZED, "{frame.auth.refresh.changed}");
+        // 轮换：读取并比对保存的Token、写入新令牌、删除当前accessToken，在一个脚本中原子完成；
+        // unique时比对refreshId，并发刷新或重放时只有一个成功，否则不比对，并发的刷新都会成功
+        String newAccessId = IdUtil.fastSimpleUUID();
+        String newRefreshId = IdUtil.fastSimpleUUID();
+        boolean storeAccess = store == 1;
+        String newAccessKey = getAccessTokenKey(tenantId, type, userAccount, newAccessId);
+        String oldAccessKey = accessId != null ? getAccessTokenKey(tenantId, type, userAccount, accessId) : null;
+        List<String> keys = new ArrayList<>(5);
+        keys.add(refreshKey);
+        keys.add(getRefreshIdKey(tenantId, type, userAccount));
+        keys.add(getSessionKey(tenantId, type, userAccount));
+        keys.add(newAccessKey);
+        if (oldAccessKey != null) {
+            keys.add(oldAccessKey);
         }
-
-        //当前accessToken删除
-        String accessId = refreshTokenInfo.getAccessId();
-        if (store == 1) {
-            redisHelper.delete(getAccessTokenKey(tenantId, type, userAccount, accessId));
+        AccessTokenInfo accessTokenInfo = new AccessTokenInfo();
+        accessTokenInfo.setAccessId(newAccessId);
+        accessTokenInfo.setRefreshId(newRefreshId);
+        accessTokenInfo.setAccessType(type);
+        accessTokenInfo.setUserAccount(userAccount);
+        accessTokenInfo.setAccessIp(Access.accessIp());
+        accessTokenInfo.setAccessTime(Access.accessTime());
+        List<Object> result = redisHelper.luaExec(LUA_REFRESH_ROTATE, List.class, keys,
+                unique == 1 ? refreshId : "",
+                accessProperties.refreshExpire(),
+                storeAccess ? accessProperties.accessExpire() : 0,
+                Math.max(accessProperties.accessExpire(), accessProperties.refreshExpire()),
+                System.currentTimeMillis(),
+                newAccessId,
+                newRefreshId,
+                storeAccess ? accessTokenInfo : "");
+        long code = result == null || result.isEmpty() ? 0 : ((Number) result.get(0)).longValue();
+        if (code == 0) {
+            throw new HttpHintException(UNAUTHORIZED, "{frame.auth.refresh.empty}");
+        }
+        if (code < 0) {
+            throw new HttpHintException(UNAUTHORIZED, "{frame.auth.refresh.changed}");
         }
 
-        // 更新Token信息
-        AccessUserDetails userDetails = new AccessUserDetails(refreshTokenInfo);
-        userDetails.setAccessId(IdUtil.fastSimpleUUID());
-        userDetails.setRefreshId(IdUtil.fastSimpleUUID());
+        AccessUserDetails userDetails = new AccessUserDetails((RefreshTokenInfo) result.get(1));
+        userDetails.setAccessId(newAccessId);
+        userDetails.setRefreshId(newRefreshId);
         userDetails.setAccessIp(Access.accessIp());
         userDetails.setAccessTime(Access.accessTime());
-        // 刷新Token并返回
-        assignAccessRefreshToken(userDetails);
+
+        // 轮换成功后才签发令牌（cookie模式下会覆盖客户端的cookie）
+        signAccessToken(userDetails);
+        signRefreshToken(userDetails);
+        // 租户索引在其它slot，轮换成功后单独更新：refreshToken索引一次，accessToken索引的删除和添加合并为一次；
+        // 加上轮换脚本，一次刷新共3次Redis调用（开启令牌缓存同步时再加一次注销记录的写入）
+        addIndexToken(tenantId, INDEX_REFRESH, accessProperties.refreshExpire(), refreshKey);
+        if (storeAccess) {
+            replaceIndexToken(tenantId, INDEX_ACCESS, accessProperties.accessExpire(), oldAccessKey, newAccessKey);
+            if (accessId != null) {
+                accessTokenCache.revokeAccess(List.of(accessId));
+            }
+        }
         return userDetails;
     }
 
@@ -290,6 +586,10 @@ public class BearerTokenServiceImpl implements BearerTokenService {
 
         // 获取服务保存的Token
         RefreshTokenInfo oauthTokenInfo = redisHelper.getValue(getOauthTokenKey(tenantId, type, userAccount, appId));
+        if (oauthTokenInfo == null && legacyFallback(accessProperties.refreshExpire())) {
+            // 升级前保存的，刷新后写入新key
+            oauthTokenInfo = redisHelper.getValueAndDelete(getLegacyOauthKey(tenantId, type, userAccount, appId));
+        }
         if (oauthTokenInfo == null) {
             throw new HttpHintException(UNAUTHORIZED, "{frame.auth.refresh.empty}");
         }
@@ -341,6 +641,12 @@ public class BearerTokenServiceImpl implements BearerTokenService {
     }
 
     private AccessUserDetails parseAccessToken(String accessToken, HttpServletResponse response) throws IOException {
+        // 已校验过的token
+        AccessTokenCache.Entry cached = accessTokenCache.get(accessToken);
+        if (cached != null) {
+            return saveUserDetails(cached.getClaims(), cached.newUserDetails());
+        }
+
         Claims claims;
         try {
             claims = Jwts.parser().setSigningKey(accessProperties.accessSecret()).parseClaimsJws(accessToken).getBody();
@@ -357,10 +663,10 @@ public class BearerTokenServiceImpl implements BearerTokenService {
             writeResponse(response, UNAUTHORIZED, "frame.auth.access.invalid");
             return null;
         }
-        return doParseAccessToken(claims, response);
+        return doParseAccessToken(claims, response, accessToken);
     }
 
-    private AccessUserDetails doParseAccessToken(Claims claims, HttpServletResponse response) throws IOException {
+    private AccessUserDetails doParseAccessToken(Claims claims, HttpServletResponse response, String accessToken) throws IOException {
         String oauthAppId = (String) claims.get(CLAIM_OAUTH_ID);
         if(StringUtils.isNotBlank(accessProperties.oauthAppId()) && !accessProperties.oauthAppId().equals(oauthAppId)){
             if (response == null) {
@@ -396,20 +702,36 @@ public class BearerTokenServiceImpl implements BearerTokenService {
         userDetails.setClusterId((Integer) claims.get(CLAIM_CLUSTER_ID));
         userDetails.setClusterLevel((Integer) claims.get(CLAIM_CLUSTER_LEVEL));
         userDetails.setClusterName((String) claims.get(CLAIM_CLUSTER_NAME));
-        // roles
-        userDetails.setRoles((List<String>) claims.get(CLAIM_USER_ROLE));
-        // permits
-        userDetails.setPermissions((List<String>) claims.get(CLAIM_USER_PERM));
+        // roles & permits
+        String permitDigest = (String) claims.get(CLAIM_PERMIT_DIGEST);
+        if (permitDigest != null) {
+            PermitDigestCache.Permits permits = permitDigestCache.resolve(permitDigest);
+            if (permits == null) {
+                if (response == null) {
+                    throw new HttpHintException(UNAUTHORIZED, "{frame.auth.access.invalid}");
+                }
+                writeResponse(response, UNAUTHORIZED, "frame.auth.access.invalid");
+                return null;
+            }
+            userDetails.setRoles(permits.getRoles());
+            userDetails.setPermissions(permits.getPermissions());
+        } else {
+            userDetails.setRoles((List<String>) claims.get(CLAIM_USER_ROLE));
+            userDetails.setPermissions((List<String>) claims.get(CLAIM_USER_PERM));
+        }
 
         // 服务端校验
         if (StringUtils.isBlank(oauthAppId) && userDetails.isStoreAccess() && redisHelper != null) {
-            AccessTokenInfo accessToken = redisHelper.getValue(getAccessTokenKey(tenantId, authType, userAccount, accessId));
+            AccessTokenInfo accessTokenInfo = redisHelper.getValue(getAccessTokenKey(tenantId, authType, userAccount, accessId));
+            if (accessTokenInfo == null) {
+                accessTokenInfo = migrateLegacyAccess(tenantId, authType, userAccount, accessId);
+            }
             String messageKey = null;
             // 被注销
-            if (accessToken == null) {
+            if (accessTokenInfo == null) {
                 messageKey = "frame.auth.access.revoked";
-            } else if (accessToken != null) {
-                Integer revoked = accessToken.getRevoked();
+            } else {
+                Integer revoked = accessTokenInfo.getRevoked();
                 // 正常退出
                 if (Objects.equals(revoked, 1)) {
                     messageKey = "frame.auth.access.revoked";
@@ -428,6 +750,14 @@ public class BearerTokenServiceImpl implements BearerTokenService {
             }
         }
 
+        // 缓存校验结果，自定义校验在每次请求时处理
+        if (accessToken != null) {
+            accessTokenCache.put(accessToken, claims, userDetails);
+        }
+        return saveUserDetails(claims, userDetails);
+    }
+
+    private AccessUserDetails saveUserDetails(Claims claims, AccessUserDetails userDetails) {
         // 处理自定义校验
         if (bearerTokenInterceptor != null) {
             bearerTokenInterceptor.additionalParseAccessToken(claims, userDetails);
@@ -472,7 +802,7 @@ public class BearerTokenServiceImpl implements BearerTokenService {
             writeResponse(response, INVALID_TOKEN, "frame.auth.access.changed.ip");
             return null;
         }
-        return doParseAccessToken(claims, response);
+        return doParseAccessToken(claims, response, null);
     }
 
     @Override
@@ -502,6 +832,7 @@ public class BearerTokenServiceImpl implements BearerTokenService {
             // 标记AccessToken失效（不能直接删除RefreshToken，不然会影响相同账号在其它设备上的登录）
             redisHelper.putExpire(getAccessTokenKey(tenantId, authType, userAccount, accessId),
                     accessTokenInfo, accessProperties.accessExpire(), TimeUnit.SECONDS);
+            accessTokenCache.revokeAccess(List.of(accessId));
         }
     }
 
@@ -509,7 +840,11 @@ public class BearerTokenServiceImpl implements BearerTokenService {
     public AccessTokenInfo revokeAccessToken(String tenantId, String authType, String userAccount, String accessId) {
         String accesskey = getAccessTokenKey(tenantId, authType, userAccount, accessId);
         AccessTokenInfo accessTokenInfo = redisHelper.getValue(accesskey);
-        redisHelper.delete(accesskey);
+        if (accessTokenInfo == null && legacyFallback(accessProperties.accessExpire())) {
+            accessTokenInfo = redisHelper.getValueAndDelete(getLegacyAccessKey(tenantId, authType, userAccount, accessId));
+        }
+        removeSessionToken(tenantId, authType, userAccount, INDEX_ACCESS, accesskey);
+        accessTokenCache.revokeAccess(List.of(accessId));
         return accessTokenInfo;
     }
 
@@ -517,11 +852,30 @@ public class BearerTokenServiceImpl implements BearerTokenService {
     public RefreshTokenInfo revokeRefreshToken(String tenantId, String authType, String userAccount) {
         String refreshKey = getRefreshTokenKey(tenantId, authType, userAccount);
         RefreshTokenInfo refreshTokenInfo = redisHelper.getValue(refreshKey);
-        redisHelper.delete(refreshKey);
-        redisHelper.deleteByPattern(applicationProperties.getName()
-                + ":auth:" + tenantId + ":access:" + authType + ":" + userAccount + ":*");
-        redisHelper.deleteByPattern(applicationProperties.getName()
-                + ":auth:" + tenantId + ":oauth:" + authType + ":" + userAccount + ":*");
+        if (refreshTokenInfo == null && legacyFallback(accessProperties.refreshExpire())) {
+            refreshTokenInfo = redisHelper.getValueAndDelete(getLegacyRefreshKey(tenantId, authType, userAccount));
+        }
+        // 删除refreshToken，以及用户的所有accessToken和oauthToken；
+        // 先读取会话中的令牌key再删除，读取之后又有新令牌加入时再删一轮
+        String sessionKey = getSessionKey(tenantId, authType, userAccount);
+        Set<String> removedKeys = new LinkedHashSet<>();
+        removedKeys.add(refreshKey);
+        removedKeys.add(getRefreshIdKey(tenantId, authType, userAccount));
+        for (int i = 0; i < 3; i++) {
+            List<String> keys = new ArrayList<>();
+            keys.add(sessionKey);
+            keys.addAll(removedKeys);
+            keys.addAll(sessionMembers(sessionKey));
+            removedKeys.addAll(keys.subList(1, keys.size()));
+            Long remaining = redisHelper.luaExec(LUA_SESSION_CLEAR, Long.class, keys);
+            if (remaining == null || remaining == 0) {
+                break;
+            }
+        }
+        for (String index : List.of(INDEX_ACCESS, INDEX_REFRESH, INDEX_OAUTH)) {
+            removeIndexToken(tenantId, index, removedKeys);
+        }
+        accessTokenCache.revokeUser(tenantId, authType, userAccount);
         return refreshTokenInfo;
     }
 
@@ -529,23 +883,65 @@ public class BearerTokenServiceImpl implements BearerTokenService {
     public RefreshTokenInfo revokeOauthToken(String tenantId, String authType, String userAccount, String appId) {
         String oauthkey = getOauthTokenKey(tenantId, authType, userAccount, appId);
         RefreshTokenInfo oauthToken = redisHelper.getValue(oauthkey);
-        redisHelper.delete(oauthkey);
+        if (oauthToken == null && legacyFallback(accessProperties.refreshExpire())) {
+            oauthToken = redisHelper.getValueAndDelete(getLegacyOauthKey(tenantId, authType, userAccount, appId));
+        }
+        removeSessionToken(tenantId, authType, userAccount, INDEX_OAUTH, oauthkey);
         return oauthToken;
     }
 
     @Override
     public List<AccessTokenInfo> listAccessToken(String tenantId) {
-        return redisHelper.getByPattern(applicationProperties.getName() + ":auth:" + tenantId + ":access:*");
+        return listIndexToken(tenantId, INDEX_ACCESS, accessProperties.accessExpire());
     }
 
     @Override
     public List<RefreshTokenInfo> listRefreshToken(String tenantId) {
-        return redisHelper.getByPattern(applicationProperties.getName() + ":auth:" + tenantId + ":refresh:*");
+        return listIndexToken(tenantId, INDEX_REFRESH, accessProperties.refreshExpire());
     }
 
     @Override
     public List<RefreshTokenInfo> listOauthToken(String tenantId) {
-        return redisHelper.getByPattern(applicationProperties.getName() + ":auth:" + tenantId + ":oauth:*");
+        return listIndexToken(tenantId, INDEX_OAUTH, accessProperties.refreshExpire());
+    }
+
+    @Override
+    public AccessTokenPage<AccessTokenInfo> pageAccessToken(
+            String tenantId, String authType, String userAccount, String cursor, int size) {
+        if (StringUtils.isNoneBlank(authType, userAccount)) {
+            return pageSessionToken(tenantId, authType, userAccount, getAccessTokenKey(tenantId, authType, userAccount, ""), cursor, size);
+        }
+        return pageIndexToken(tenantId, INDEX_ACCESS, accessProperties.accessExpire(), cursor, size);
+    }
+
+    @Override
+    public AccessTokenPage<RefreshTokenInfo> pageRefreshToken(
+            String tenantId, String authType, String userAccount, String cursor, int size) {
+        if (StringUtils.isNoneBlank(authType, userAccount)) {
+            return pageSessionToken(tenantId, authType, userAccount, getRefreshTokenKey(tenantId, authType, userAccount), cursor, size);
+        }
+        return pageIndexToken(tenantId, INDEX_REFRESH, accessProperties.refreshExpire(), cursor, size);
+    }
+
+    @Override
+    public AccessTokenPage<RefreshTokenInfo> pageOauthToken(
+            String tenantId, String authType, String userAccount, String cursor, int size) {
+        if (StringUtils.isNoneBlank(authType, userAccount)) {
+            return pageSessionToken(tenantId, authType, userAccount, getOauthTokenKey(tenantId, authType, userAccount, ""), cursor, size);
+        }
+        return pageIndexToken(tenantId, INDEX_OAUTH, accessProperties.refreshExpire(), cursor, size);
+    }
+
+    /**
+     * 角色和权限，开启摘要时只写入摘要
+     */
+    private void permitClaims(JwtBuilder jwtBuilder, AccessUserDetails userDetails) {
+        if (accessProperties.permitDigest()) {
+            jwtBuilder.claim(CLAIM_PERMIT_DIGEST, permitDigestCache.digest(userDetails.getRoles(), userDetails.getPermissions()));
+        } else {
+            jwtBuilder.claim(CLAIM_USER_ROLE, userDetails.getRoles())
+                    .claim(CLAIM_USER_PERM, userDetails.getPermissions());
+        }
     }
 
     private String getAccessTokenKey(String tenantId, String type, String userAccount, String accessId) {
@@ -556,10 +952,209 @@ public class BearerTokenServiceImpl implements BearerTokenService {
         return AUTH_REFRESH_KEY.formatted(applicationProperties.getName(), tenantId, type, userAccount);
     }
 
+    private String getRefreshIdKey(String tenantId, String type, String userAccount) {
+        return AUTH_REFRESH_ID_KEY.formatted(applicationProperties.getName(), tenantId, type, userAccount);
+    }
+
     private String getOauthTokenKey(String tenantId, String type, String userAccount, String appId) {
         return AUTH_OAUTH_KEY.formatted(applicationProperties.getName(), tenantId, type, userAccount, appId);
     }
 
+    private String getSessionKey(String tenantId, String type, String userAccount) {
+        return AUTH_SESSION_KEY.formatted(applicationProperties.getName(), tenantId, type, userAccount);
+    }
+
+    private String getIndexKey(String tenantId, String index) {
+        return AUTH_INDEX_KEY.formatted(applicationProperties.getName(), tenantId, index);
+    }
+
+    private String getLegacyAccessKey(String tenantId, String type, String userAccount, String accessId) {
+        return LEGACY_ACCESS_KEY.formatted(applicationProperties.getName(), tenantId, type, userAccount, accessId);
+    }
+
+    private String getLegacyRefreshKey(String tenantId, String type, String userAccount) {
+        return LEGACY_REFRESH_KEY.formatted(applicationProperties.getName(), tenantId, type, userAccount);
+    }
+
+    private String getLegacyOauthKey(String tenantId, String type, String userAccount, String appId) {
+        return LEGACY_OAUTH_KEY.formatted(applicationProperties.getName(), tenantId, type, userAccount, appId);
+    }
+
+    private boolean legacyFallback(long expireSeconds) {
+        return System.currentTimeMillis() - startedAt < expireSeconds * 1000L;
+    }
+
+    /**
+     * 升级前保存的accessToken，迁移到新key
+     */
+    private AccessTokenInfo migrateLegacyAccess(String tenantId, String type, String userAccount, String accessId) {
+        if (!legacyFallback(accessProperties.accessExpire())) {
+            return null;
+        }
+        AccessTokenInfo accessTokenInfo = redisHelper.getValueAndDelete(getLegacyAccessKey(tenantId, type, userAccount, accessId));
+        if (accessTokenInfo != null) {
+            putSessionToken(tenantId, type, userAccount, INDEX_ACCESS, getAccessTokenKey(tenantId, type, userAccount, accessId),
+                    accessTokenInfo, accessProperties.accessExpire(), Map.of());
+        }
+        return accessTokenInfo;
+    }
+
+    /**
+     * 升级前保存的refreshToken，迁移到新key（当前的accessToken随后被轮换，直接删除）
+     */
+    private RefreshTokenInfo migrateLegacyRefresh(String tenantId, String type, String userAccount) {
+        if (!legacyFallback(accessProperties.refreshExpire())) {
+            return null;
+        }
+        RefreshTokenInfo refreshTokenInfo = redisHelper.getValueAndDelete(getLegacyRefreshKey(tenantId, type, userAccount));
+        if (refreshTokenInfo == null) {
+            return null;
+        }
+        if (refreshTokenInfo.getAccessId() != null) {
+            redisHelper.delete(getLegacyAccessKey(tenantId, type, userAccount, refreshTokenInfo.getAccessId()));
+        }
+        String refreshKey = getRefreshTokenKey(tenantId, type, userAccount);
+        redisHelper.luaExec(LUA_REFRESH_PUT, Long.class, List.of(getSessionKey(tenantId, type, userAccount),
+                        refreshKey, getRefreshIdKey(tenantId, type, userAccount)),
+                accessProperties.refreshExpire(), Math.max(accessProperties.accessExpire(), accessProperties.refreshExpire()),
+                System.currentTimeMillis(), refreshTokenInfo, Objects.toString(refreshTokenInfo.getRefreshId(), ""));
+        addIndexToken(tenantId, INDEX_REFRESH, accessProperties.refreshExpire(), refreshKey);
+        return refreshTokenInfo;
+    }
+
+    /**
+     * 写入令牌并加入用户会话索引，同时更新已有令牌（比如标记为被其它设备登录注销），在一个脚本中原子完成；然后加入租户索引
+     */
+    private void putSessionToken(String tenantId, String type, String userAccount, String index,
+                                 String tokenKey, Object tokenInfo, long expire, Map<String, Object> updateTokens) {
+        List<String> keys = new ArrayList<>(updateTokens.size() + 2);
+        keys.add(getSessionKey(tenantId, type, userAccount));
+        keys.add(tokenKey);
+        keys.addAll(updateTokens.keySet());
+        List<Object> args = new ArrayList<>(updateTokens.size() + 4);
+        args.add(expire);
+        args.add(Math.max(accessProperties.accessExpire(), accessProperties.refreshExpire()));
+        args.add(System.currentTimeMillis());
+        args.add(tokenInfo);
+        args.addAll(updateTokens.values());
+        redisHelper.luaExec(LUA_SESSION_PUT, Long.class, keys, args.toArray());
+        addIndexToken(tenantId, index, expire, tokenKey);
+    }
+
+    private void removeSessionToken(String tenantId, String type, String userAccount, String index, String tokenKey) {
+        redisHelper.luaExec(LUA_SESSION_REMOVE, Long.class, List.of(getSessionKey(tenantId, type, userAccount), tokenKey));
+        removeIndexToken(tenantId, index, List.of(tokenKey));
+    }
+
+    private void addIndexToken(String tenantId, String index, long expire, String tokenKey) {
+        long now = System.currentTimeMillis();
+        redisHelper.luaExec(LUA_INDEX_ADD, Long.class, List.of(getIndexKey(tenantId, index)), now, now - expire * 1000L, tokenKey);
+    }
+
+    private void replaceIndexToken(String tenantId, String index, long expire, String oldTokenKey, String newTokenKey) {
+        if (oldTokenKey == null) {
+            addIndexToken(tenantId, index, expire, newTokenKey);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        redisHelper.luaExec(LUA_INDEX_REPLACE, Long.class, List.of(getIndexKey(tenantId, index)),
+                now, now - expire * 1000L, oldTokenKey, newTokenKey);
+    }
+
+    private void removeIndexToken(String tenantId, String index, Collection<String> tokenKeys) {
+        if (!tokenKeys.isEmpty()) {
+            redisHelper.luaExec(LUA_INDEX_REMOVE, Long.class, List.of(getIndexKey(tenantId, index)), tokenKeys.toArray());
+        }
+    }
+
+    /**
+     * 用户的所有令牌，按最近活动时间倒序
+     */
+    private <T> List<T> listSessionToken(String tenantId, String type, String userAccount, String keyPrefix) {
+        return this.<T>pageSessionToken(tenantId, type, userAccount, keyPrefix, null, Integer.MAX_VALUE).getList();
+    }
+
+    /**
+     * 用户的令牌分页，按最近活动时间倒序，游标为偏移
+     */
+    private <T> AccessTokenPage<T> pageSessionToken(String tenantId, String type, String userAccount,
+                                                    String keyPrefix, String cursor, int size) {
+        long offset = StringUtils.isNotBlank(cursor) ? Long.parseLong(cursor) : 0;
+        String sessionKey = getSessionKey(tenantId, type, userAccount);
+        List<String> keys = new ArrayList<>();
+        keys.add(sessionKey);
+        for (String member : sessionMembers(sessionKey)) {
+            if (member.startsWith(keyPrefix)) {
+                keys.add(member);
+            }
+        }
+        if (keys.size() <= offset + 1) {
+            return new AccessTokenPage<>(new ArrayList<>(), null);
+        }
+        List<Object> result = redisHelper.luaExec(LUA_SESSION_PAGE, List.class, keys, offset, Math.max(size, 1));
+        long nextOffset = ((Number) result.get(0)).longValue();
+        List<T> list = new ArrayList<>(result.size() - 1);
+        for (int i = 1; i < result.size(); i++) {
+            list.add((T) result.get(i));
+        }
+        return new AccessTokenPage<>(list, nextOffset < 0 ? null : String.valueOf(nextOffset));
+    }
+
+    private List<String> sessionMembers(String sessionKey) {
+        List<String> members = redisHelper.luaExec(LUA_SESSION_MEMBERS, List.class, RedisSerializer.string(), List.of(sessionKey));
+        return members != null ? members : List.of();
+    }
+
+    private <T> List<T> listIndexToken(String tenantId, String index, long expire) {
+        List<T> list = new ArrayList<>();
+        String cursor = null;
+        do {
+            AccessTokenPage<T> page = pageIndexToken(tenantId, index, expire, cursor, 1000);
+            list.addAll(page.getList());
+            cursor = page.getCursor();
+        } while (cursor != null);
+        return list;
+    }
+
+    /**
+     * 租户的令牌分页，按最近活动时间倒序，游标为：分值:该分值上已返回的数量
+     */
+    private <T> AccessTokenPage<T> pageIndexToken(String tenantId, String index, long expire, String cursor, int size) {
+        long cursorScore = Long.MAX_VALUE;
+        long cursorSkip = 0;
+        if (StringUtils.isNotBlank(cursor)) {
+            int split = cursor.indexOf(':');
+            cursorScore = Long.parseLong(cursor.substring(0, split));
+            cursorSkip = Long.parseLong(cursor.substring(split + 1));
+        }
+        long expiredScore = System.currentTimeMillis() - expire * 1000L;
+        List<Object> result = redisHelper.luaExec(LUA_INDEX_PAGE, List.class, RedisSerializer.string(),
+                List.of(getIndexKey(tenantId, index)), cursorScore, cursorSkip, Math.max(size, 1), expiredScore);
+
+        long nextScore = ((Number) result.get(0)).longValue();
+        String nextCursor = nextScore < 0 ? null : nextScore + ":" + ((Number) result.get(1)).longValue();
+        // 令牌在其它slot，单独读取（Cluster中按slot拆分），已不存在的从索引中清除
+        List<String> tokenKeys = new ArrayList<>(result.size() - 2);
+        for (int i = 2; i < result.size(); i++) {
+            tokenKeys.add((String) result.get(i));
+        }
+        List<T> list = new ArrayList<>(tokenKeys.size());
+        List<String> missingKeys = new ArrayList<>();
+        if (!tokenKeys.isEmpty()) {
+            List<T> values = redisHelper.getMultiValue(tokenKeys);
+            for (int i = 0; i < tokenKeys.size(); i++) {
+                T value = values.get(i);
+                if (value != null) {
+                    list.add(value);
+                } else {
+                    missingKeys.add(tokenKeys.get(i));
+                }
+            }
+        }
+        removeIndexToken(tenantId, index, missingKeys);
+        return new AccessTokenPage<>(list, nextCursor);
+    }
+
     @Override
     public boolean validAccessToken(String accessToken) {
         if (StringUtils.isBlank(accessToken)) {
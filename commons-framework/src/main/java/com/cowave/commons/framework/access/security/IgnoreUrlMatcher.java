@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.AntPathMatcher;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 忽略url的匹配，与逐个使用AntPathRequestMatcher匹配的结果一致
+ * <p> 所有pattern按开头的固定路径段合并成一棵前缀树（以/开头和不以/开头的分开，与AntPathMatcher一样要求请求路径的开头一致）：
+ * 固定路径、以/**结尾的固定路径直接在树上判断，其余带通配的pattern挂在其固定前缀的节点上，只有请求路径经过该节点时才用AntPathMatcher匹配；
+ * <p> 以/**结尾的固定路径与AntPathRequestMatcher的SubpathMatcher一样按字符串前缀匹配，请求路径中有连续的/时不匹配（//a/x不匹配/a/**），
+ * 无法在树上表示的（不以/开头或者包含//）逐个按前缀匹配；
+ * <p> 最近的路径匹配结果缓存在一个有界LRU中
+ *
+ * @author shanhuiming
+ */
+public class IgnoreUrlMatcher {
+
+    private static final String SEPARATOR = "/";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher(SEPARATOR);
+
+    private final Node root = new Node();
+
+    private final Node relativeRoot = new Node();
+
+    private final List<String> subpaths = new ArrayList<>(0);
+
+    private boolean matchAll;
+
+    private final Cache<String, Boolean> decisions;
+
+    private final boolean empty;
+
+    public IgnoreUrlMatcher(String[] patterns, int cacheSize) {
+        pathMatcher.setTrimTokens(false);
+        pathMatcher.setCaseSensitive(true);
+        this.decisions = CacheBuilder.newBuilder().maximumSize(Math.max(cacheSize, 1)).build();
+        this.empty = patterns == null || patterns.length == 0;
+        if (patterns != null) {
+            for (String pattern : patterns) {
+                compile(pattern);
+            }
+        }
+    }
+
+    public boolean matches(HttpServletRequest request) {
+        if (empty) {
+            return false;
+        }
+        String path = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        if (pathInfo != null) {
+            path = StringUtils.isNotEmpty(path) ? path + pathInfo : pathInfo;
+        }
+        Boolean decision = decisions.getIfPresent(path);
+        if (decision == null) {
+            decision = match(path);
+            decisions.put(path, decision);
+        }
+        return decision;
+    }
+
+    boolean match(String path) {
+        if (matchAll) {
+            return true;
+        }
+        for (String subpath : subpaths) {
+            if (matchSubpath(subpath, path)) {
+                return true;
+            }
+        }
+        boolean absolute = path.startsWith(SEPARATOR);
+        Node node = absolute ? root : relativeRoot;
+        // 已经过的路径是否与树上的固定路径逐字相同（没有连续的/），只有这时才能按子路径匹配
+        boolean canonical = absolute;
+        int start = 0;
+        int length = path.length();
+        while (true) {
+            if ((node.subtree && canonical) || node.matchPatterns(pathMatcher, path)) {
+                return true;
+            }
+            // 跳过空的路径段，与AntPathMatcher的分词一致
+            int from = start;
+            while (start < length && path.charAt(start) == '/') {
+                start++;
+            }
+            if (start >= length) {
+                return path.endsWith(SEPARATOR) ? node.exactWithSlash : node.exact;
+            }
+            if (start - from != 1) {
+                canonical = false;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            node = node.children.get(path.substring(start, end));
+            if (node == null) {
+                return false;
+            }
+            start = end;
+        }
+    }
+
+    private void compile(String pattern) {
+        if (StringUtils.isBlank(pattern)) {
+            return;
+        }
+        if ("/**".equals(pattern) || "**".equals(pattern)) {
+            matchAll = true;
+            return;
+        }
+        if (isSubpath(pattern)) {
+            String subpath = pattern.substring(0, pattern.length() - 3);
+            if (!subpath.startsWith(SEPARATOR) || subpath.endsWith(SEPARATOR) || subpath.contains("//")) {
+                subpaths.add(subpath);
+                return;
+            }
+        }
+
+        String[] segments = StringUtils.split(pattern, '/');
+        Node node = pattern.startsWith(SEPARATOR) ? root : relativeRoot;
+        int index = 0;
+        while (index < segments.length && isLiteral(segments[index])) {
+            node = node.children.computeIfAbsent(segments[index], k -> new Node());
+            index++;
+        }
+
+        if (index == segments.length) {
+            // 固定路径
+            if (pattern.endsWith(SEPARATOR)) {
+                node.exactWithSlash = true;
+            } else {
+                node.exact = true;
+            }
+        } else if (isSubpath(pattern)) {
+            // 固定路径下的所有子路径
+            node.subtree = true;
+        } else {
+            node.patterns.add(pattern);
+        }
+    }
+
+    /**
+     * AntPathRequestMatcher中使用SubpathMatcher的pattern：以/**结尾，其它部分没有通配
+     */
+    private static boolean isSubpath(String pattern) {
+        return pattern.endsWith("/**") && pattern.indexOf('?') < 0 && pattern.indexOf('{') < 0
+                && pattern.indexOf('}') < 0 && pattern.indexOf('*') == pattern.length() - 2;
+    }
+
+    private static boolean matchSubpath(String subpath, String path) {
+        return path.startsWith(subpath) && (path.length() == subpath.length() || path.charAt(subpath.length()) == '/');
+    }
+
+    private static boolean isLiteral(String segment) {
+        return segment.indexOf('*') < 0 && segment.indexOf('?') < 0 && segment.indexOf('{') < 0;
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        private final List<String> patterns = new ArrayList<>(0);
+
+        private boolean exact;
+
+        private boolean exactWithSlash;
+
+        private boolean subtree;
+
+        boolean matchPatterns(AntPathMatcher pathMatcher, String path) {
+            for (String pattern : patterns) {
+                if (pathMatcher.match(pattern, path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -9,12 +9,9 @@
  */
 package com.cowave.commons.framework.access.security;
 
-import java.util.List;
-
 import com.cowave.commons.framework.access.Access;
 import com.cowave.commons.framework.access.AccessProperties;
 import com.cowave.commons.framework.configuration.ApplicationProperties;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
@@ -54,8 +51,8 @@ public class Permission {
      * 是否管理员
      */
     public boolean isAdmin() {
-        List<String> roles = Access.userRoles();
-        return !roles.isEmpty() && roles.contains(ROLE_ADMIN);
+        AccessUserDetails userDetails = Access.userDetails();
+        return userDetails != null && userDetails.permitMatcher().hasRole(ROLE_ADMIN);
     }
 
     /**
@@ -63,9 +60,7 @@ public class Permission {
      */
     public boolean isSystemAdmin() {
         String tenantId = Access.tenantId();
-        List<String> roles = Access.userRoles();
-        return StringUtils.isNotBlank(tenantId) && !roles.isEmpty()
-                && TENANT_SYSTEM.equals(tenantId) && roles.contains(ROLE_ADMIN);
+        return StringUtils.isNotBlank(tenantId) && TENANT_SYSTEM.equals(tenantId) && isAdmin();
     }
 
     /**
@@ -80,15 +75,16 @@ public class Permission {
      * 是否拥有指定角色
      */
     public boolean hasRole(String role) {
-        if(isIgnore() || isAdmin()) {
+        if(isIgnore()) {
             return true;
         }
 
-        List<String> roles = Access.userRoles();
-        if(CollectionUtils.isEmpty(roles)) {
+        AccessUserDetails userDetails = Access.userDetails();
+        if(userDetails == null) {
             return false;
         }
-        return roles.contains(role);
+        PermitMatcher permitMatcher = userDetails.permitMatcher();
+        return permitMatcher.hasRole(ROLE_ADMIN) || permitMatcher.hasRole(role);
     }
 
     /**
@@ -100,42 +96,19 @@ public class Permission {
             access.setPermit(permission);
         }
 
-        if(isIgnore() || StringUtils.isBlank(permission) || isAdmin()) {
+        if(isIgnore() || StringUtils.isBlank(permission)) {
             return true;
         }
 
-        List<String> permits = Access.userPermissions();
-        if(CollectionUtils.isEmpty(permits)) {
+        AccessUserDetails userDetails = Access.userDetails();
+        if(userDetails == null) {
             return false;
         }
-
-        for(String permit : permits){
-            if(StringUtils.isNotBlank(permit) && matchPermit(permit, permission)){
-                return true;
-            }
-        }
-        return false;
+        PermitMatcher permitMatcher = userDetails.permitMatcher();
+        return permitMatcher.hasRole(ROLE_ADMIN) || permitMatcher.hasPermit(permission);
     }
 
     public boolean isIgnore() {
         return !accessProperties.authEnable() && StringUtils.isBlank(Access.getRequestHeader(X_User_Payload));
     }
-
-    private boolean matchPermit(String srcPermit, String destPermit) {
-        String[] src = srcPermit.split(":");
-        String[] dest = destPermit.split(":");
-        // 左匹配
-        for (int index = 0; index < src.length; index++) {
-            if (PERMIT_ADMIN.equals(src[index])) {
-                return true;
-            }
-            if (index >= dest.length) {
-                return false;
-            }
-            if (!src[index].equals(dest[index])) {
-                return false;
-            }
-        }
-        return true;
-    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.security;
+
+import com.cowave.commons.framework.helper.redis.RedisHelper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限摘要，令牌中只携带角色和权限集合的摘要（版本.hash），完整集合保存在Redis并在本地缓存
+ * <p> 摘要由集合内容决定，角色相同的用户共享同一份集合；集合内容变化时摘要也会变化，所以本地缓存不会过时
+ *
+ * @author shanhuiming
+ */
+public class PermitDigestCache {
+    // {applicationName}:auth:permit:{digest}
+    public static final String AUTH_PERMIT_KEY = "%s:auth:permit:%s";
+
+    // 摘要算法的版本，算法变化时修改
+    private static final String VERSION = "1";
+
+    private final Cache<String, Permits> cache;
+
+    private final String applicationName;
+
+    private final RedisHelper redisHelper;
+
+    private final long expireSeconds;
+
+    /**
+     * @param expireSeconds Redis中保存的时长(s)，不小于令牌的有效时长，每次签发令牌时延长
+     */
+    public PermitDigestCache(String applicationName, RedisHelper redisHelper, int maximumSize, long expireSeconds) {
+        this.applicationName = applicationName;
+        this.redisHelper = redisHelper;
+        this.expireSeconds = expireSeconds;
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * 计算摘要并保存集合
+     */
+    public String digest(List<String> roles, List<String> permissions) {
+        List<String> sortedRoles = sorted(roles);
+        List<String> sortedPermissions = sorted(permissions);
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (String role : sortedRoles) {
+            hasher.putString(role, StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        hasher.putByte((byte) 1);
+        for (String permission : sortedPermissions) {
+            hasher.putString(permission, StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        String digest = VERSION + "." + hasher.hash().toString().substring(0, 32);
+
+        if (cache.getIfPresent(digest) == null) {
+            cache.put(digest, new Permits(
+                    Collections.unmodifiableList(sortedRoles), Collections.unmodifiableList(sortedPermissions)));
+        }
+        if (redisHelper != null) {
+            redisHelper.putExpire(AUTH_PERMIT_KEY.formatted(applicationName, digest),
+                    new Permits(sortedRoles, sortedPermissions), expireSeconds, TimeUnit.SECONDS);
+        }
+        return digest;
+    }
+
+    /**
+     * 根据摘要获取集合，本地没有时从Redis加载
+     *
+     * @return 没有找到时返回null
+     */
+    public Permits resolve(String digest) {
+        Permits permits = cache.getIfPresent(digest);
+        if (permits != null || redisHelper == null) {
+            return permits;
+        }
+        permits = redisHelper.getValue(AUTH_PERMIT_KEY.formatted(applicationName, digest));
+        if (permits != null) {
+            permits = new Permits(Collections.unmodifiableList(sorted(permits.getRoles())),
+                    Collections.unmodifiableList(sorted(permits.getPermissions())));
+            cache.put(digest, permits);
+        }
+        return permits;
+    }
+
+    private static List<String> sorted(List<String> list) {
+        if (list == null || list.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> sorted = new ArrayList<>(list);
+        sorted.removeIf(Objects::isNull);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    public static class Permits {
+
+        /**
+         * 角色
+         */
+        private List<String> roles;
+
+        /**
+         * 权限
+         */
+        private List<String> permissions;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.security;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+
+/**
+ * 编译后的用户角色和权限
+ * <p> 权限按 : 分段构建成前缀树，匹配规则与逐个比较时一致：权限是目标的前缀即匹配，某一段为 * 时匹配剩余所有段；
+ * <p> 匹配时直接在目标字符串上按段查找子节点，不做split，也不产生分配
+ *
+ * @author shanhuiming
+ */
+public final class PermitMatcher {
+
+    private static final String WILDCARD = "*";
+
+    private final Set<String> roles;
+
+    private final Node root;
+
+    private PermitMatcher(Set<String> roles, Node root) {
+        this.roles = roles;
+        this.root = root;
+    }
+
+    public static PermitMatcher compile(Collection<String> roles, Collection<String> permissions) {
+        Set<String> roleSet = roles == null || roles.isEmpty() ? Collections.emptySet() : new HashSet<>(roles);
+        Builder root = new Builder();
+        if (permissions != null) {
+            for (String permission : permissions) {
+                if (StringUtils.isBlank(permission)) {
+                    continue;
+                }
+                Builder node = root;
+                for (String segment : permission.split(":")) {
+                    if (WILDCARD.equals(segment)) {
+                        node.wildcard = true;
+                        break;
+                    }
+                    node = node.children.computeIfAbsent(segment, k -> new Builder());
+                }
+                if (!node.wildcard) {
+                    node.terminal = true;
+                }
+            }
+        }
+        return new PermitMatcher(roleSet, root.build());
+    }
+
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+
+    public boolean hasPermit(String permission) {
+        // 与 String.split 一致，忽略末尾的空段
+        int end = permission.length();
+        while (end > 0 && permission.charAt(end - 1) == ':') {
+            end--;
+        }
+
+        Node node = root;
+        int start = 0;
+        boolean hasNext = end > 0;
+        while (true) {
+            if (node.wildcard || node.terminal) {
+                return true;
+            }
+            if (!hasNext) {
+                return false;
+            }
+            int split = permission.indexOf(':', start);
+            if (split < 0 || split >= end) {
+                split = end;
+                hasNext = false;
+            }
+            node = node.child(permission, start, split);
+            if (node == null) {
+                return false;
+            }
+            start = split + 1;
+        }
+    }
+
+    /**
+     * 前缀树节点，子节点使用开放寻址的hash表，按字符串区间计算hash和比较
+     */
+    private static final class Node {
+
+        private final boolean wildcard;
+
+        private final boolean terminal;
+
+        private final String[] keys;
+
+        private final Node[] children;
+
+        private final int mask;
+
+        Node(boolean wildcard, boolean terminal, Map<String, Node> childMap) {
+            this.wildcard = wildcard;
+            this.terminal = terminal;
+            if (childMap.isEmpty()) {
+                this.keys = null;
+                this.children = null;
+                this.mask = 0;
+                return;
+            }
+            int capacity = Integer.highestOneBit(childMap.size() * 2 - 1) << 1;
+            this.keys = new String[capacity];
+            this.children = new Node[capacity];
+            this.mask = capacity - 1;
+            for (Map.Entry<String, Node> entry : childMap.entrySet()) {
+                int index = entry.getKey().hashCode() & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = entry.getKey();
+                children[index] = entry.getValue();
+            }
+        }
+
+        Node child(String permission, int start, int end) {
+            if (keys == null) {
+                return null;
+            }
+            // 与 String.hashCode 相同的计算
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + permission.charAt(i);
+            }
+            int length = end - start;
+            int index = hash & mask;
+            String key;
+            while ((key = keys[index]) != null) {
+                if (key.length() == length && permission.regionMatches(start, key, 0, length)) {
+                    return children[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+    }
+
+    private static final class Builder {
+
+        private boolean wildcard;
+
+        private boolean terminal;
+
+        private final Map<String, Builder> children = new HashMap<>();
+
+        Node build() {
+            Map<String, Node> childMap = new HashMap<>();
+            // 有通配或终止时，子节点不会再被访问
+            if (!wildcard && !terminal) {
+                for (Map.Entry<String, Builder> entry : children.entrySet()) {
+                    childMap.put(entry.getKey(), entry.getValue().build());
+                }
+            }
+            return new Node(wildcard, terminal, childMap);
+        }
+    }
+}
@@ -64,9 +64,28 @@ public class SecurityConfiguration {
     @Bean
     public BearerTokenService bearerTokenService(
             AccessIdGenerator accessIdGenerator, ObjectMapper objectMapper,
-            @Nullable RedisHelper redisHelper, @Nullable BearerTokenInterceptor bearerTokenInterceptor){
+            @Nullable RedisHelper redisHelper, @Nullable BearerTokenInterceptor bearerTokenInterceptor,
+            AccessTokenCache accessTokenCache, PermitDigestCache permitDigestCache){
         return new BearerTokenServiceImpl(applicationProperties, accessProperties,
-                accessIdGenerator, objectMapper, redisHelper, bearerTokenInterceptor);
+                accessIdGenerator, objectMapper, redisHelper, bearerTokenInterceptor, accessTokenCache, permitDigestCache);
+    }
+
+    @ConditionalOnMissingBean(AccessTokenCache.class)
+    @Bean(destroyMethod = "shutdown")
+    public AccessTokenCache accessTokenCache(@Nullable RedisHelper redisHelper){
+        return new AccessTokenCache(applicationProperties.getName(), redisHelper, accessProperties.tokenCacheSize(),
+                accessProperties.tokenCacheExpire(), accessProperties.revokeSyncInterval(), accessProperties.accessExpire());
+    }
+
+    @ConditionalOnMissingBean(PermitDigestCache.class)
+    @Bean
+    public PermitDigestCache permitDigestCache(@Nullable RedisHelper redisHelper){
+        // 摘要对应的集合保存在Redis中，其它节点（以及网关后的服务）才能解析
+        if (accessProperties.permitDigest() && redisHelper == null) {
+            throw new IllegalStateException("spring.access.auth.permit-digest requires Redis to share permit sets between nodes");
+        }
+        return new PermitDigestCache(applicationProperties.getName(), redisHelper, 1000,
+                Math.max(accessProperties.accessExpire(), accessProperties.refreshExpire()));
     }
 
     @ConditionalOnMissingBean(TenantUserDetailsService.class)
@@ -173,8 +192,12 @@ public class SecurityConfiguration {
             // Basic认证
             if (ArrayUtils.isNotEmpty(basicUrls)) {
                 TenantUserDetailsService defaultUserDetailsService = tenantUserDetailsService(passwordEncoder, bearerTokenService);
-                BasicAuthFilter basicAuthFilter = new BasicAuthFilter(
-                        userDetailsService, defaultUserDetailsService, basicWithConfigUser, passwordEncoder, basicUrls);
+                int basicCacheSize = accessProperties.basicCacheSize();
+                long basicCacheExpire = accessProperties.basicCacheExpire();
+                BasicCredentialCache credentialCache = basicCacheSize > 0 && basicCacheExpire > 0
+                        ? new BasicCredentialCache(basicCacheSize, basicCacheExpire) : null;
+                BasicAuthFilter basicAuthFilter = new BasicAuthFilter(userDetailsService,
+                        defaultUserDetailsService, basicWithConfigUser, passwordEncoder, basicUrls, credentialCache);
                 httpSecurity.addFilterBefore(basicAuthFilter, BearerTokenFilter.class);
             }
         } else {
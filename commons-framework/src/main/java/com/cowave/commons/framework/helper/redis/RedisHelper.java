@@ -24,6 +24,7 @@ import org.springframework.data.redis.connection.RedisServerCommands;
 import org.springframework.data.redis.connection.stream.*;
 import org.springframework.data.redis.connection.stream.Record;
 import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.serializer.RedisSerializer;
 
 import javax.validation.constraints.NotNull;
@@ -72,6 +73,39 @@ public class RedisHelper{
         redisTemplate.execute((RedisCallback<String>) RedisConnectionCommands::ping);
     }
 
+    /**
+     * 执行lua脚本，String和数字参数按原样传入（脚本中可以直接比较或tonumber），其它参数用value序列化
+     * <p> 返回的bulk结果用value序列化反序列化
+     */
+    public <T> T luaExec(String lua, Class<T> resultType, List<String> keys, Object... args){
+        return luaExec(lua, resultType, redisTemplate.getValueSerializer(), keys, args);
+    }
+
+    /**
+     * 执行lua脚本，返回的bulk结果用指定的序列化反序列化（比如脚本返回的是key时使用RedisSerializer.string()）
+     */
+    public <T> T luaExec(String lua, Class<T> resultType, RedisSerializer<?> resultSerializer, List<String> keys, Object... args){
+        DefaultRedisScript<T> luaScript = new DefaultRedisScript<>();
+        luaScript.setScriptText(lua);
+        luaScript.setResultType(resultType);
+        RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+        RedisSerializer<Object> argsSerializer = new RedisSerializer<>() {
+            @Override
+            public byte[] serialize(Object value) {
+                if (value instanceof String || value instanceof Number) {
+                    return value.toString().getBytes(StandardCharsets.UTF_8);
+                }
+                return valueSerializer.serialize(value);
+            }
+
+            @Override
+            public Object deserialize(byte[] bytes) {
+                return valueSerializer.deserialize(bytes);
+            }
+        };
+        return (T) redisTemplate.execute(luaScript, argsSerializer, resultSerializer, keys, args);
+    }
+
     /**
      * @see <a href="https://redis.io/commands/exists">Redis Documentation: EXISTS</a>
      */
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.support.actuator;
+
+import com.cowave.commons.framework.access.AccessTimers;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.EndpointDiscoverer;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 最慢的接口（按p99排序）
+ *
+ * @author shanhuiming
+ */
+@ConditionalOnClass({EndpointDiscoverer.class})
+@Endpoint(id = "access")
+@RequiredArgsConstructor
+@Component
+public class AccessEndpoint {
+
+    private final AccessTimers accessTimers;
+
+    @ReadOperation
+    public List<Map<String, Object>> slowest(@Nullable Integer top) {
+        return accessTimers.slowest(top != null ? top : 20);
+    }
+}
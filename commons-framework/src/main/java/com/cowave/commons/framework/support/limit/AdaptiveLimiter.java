@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.support.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发限制（gradient算法）
+ * <p> 用短期RTT与长期RTT的比值作为梯度，RTT变长时按比例收缩并发限制，RTT平稳时每次增加 sqrt(limit) 的余量；
+ * <p> 并发数不到限制的一半时不增加限制，避免空闲时把限制抬得过高；
+ * <p> 调用失败（异常、超时）时不采样RTT（快速失败的RTT会把梯度拉高），而是把限制乘以 {@value #BACKOFF_RATIO}（AIMD的乘性减），
+ * 下游故障时即使RTT看起来正常，限制也会收缩；
+ * <p> 每次调用结束时尝试更新限制，拿不到锁时跳过这次采样，不阻塞调用线程
+ *
+ * @author shanhuiming
+ */
+public class AdaptiveLimiter {
+
+    // 限制的平滑系数
+    private static final double SMOOTHING = 0.2;
+
+    // 短期RTT的衰减系数
+    private static final double SHORT_ALPHA = 0.1;
+
+    // 长期RTT的衰减系数（约600个采样）
+    private static final double LONG_ALPHA = 1.0 / 600;
+
+    // 调用失败时限制的收缩比例
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    private final Condition released = waitLock.newCondition();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private volatile double limit;
+
+    // 以下只在updateLock中访问
+    private double shortRtt;
+
+    private double longRtt;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(minLimit, 1);
+        this.maxLimit = Math.max(maxLimit, this.minLimit);
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+    }
+
+    /**
+     * 获取并发许可，超过限制时等待
+     *
+     * @return 获取许可的时间(ns)，用于release时计算RTT；没有获取到返回-1
+     */
+    public long tryAcquire(long waitTime, TimeUnit timeUnit) {
+        if (tryIncrement()) {
+            return System.nanoTime();
+        }
+        long waitNanos = timeUnit.toNanos(waitTime);
+        if (waitNanos > 0 && await(waitNanos)) {
+            return System.nanoTime();
+        }
+        rejected.increment();
+        return -1;
+    }
+
+    /**
+     * 释放许可并采样RTT
+     *
+     * @param startNanos tryAcquire的返回值
+     * @param success    调用是否成功，失败时不采样RTT，按比例收缩限制
+     */
+    public void release(long startNanos, boolean success) {
+        int current = inflight.decrementAndGet();
+        if (success) {
+            sample(System.nanoTime() - startNanos, current + 1);
+        } else {
+            backoff();
+        }
+        if (waiters.get() > 0) {
+            waitLock.lock();
+            try {
+                released.signal();
+            } finally {
+                waitLock.unlock();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private boolean tryIncrement() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean await(long waitNanos) {
+        long deadline = System.nanoTime() + waitNanos;
+        waiters.incrementAndGet();
+        waitLock.lock();
+        try {
+            while (true) {
+                if (tryIncrement()) {
+                    return true;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                released.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waitLock.unlock();
+            waiters.decrementAndGet();
+        }
+    }
+
+    private void backoff() {
+        if (!updateLock.tryLock()) {
+            return;
+        }
+        try {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void sample(long rttNanos, int inflightAtRelease) {
+        if (rttNanos <= 0 || !updateLock.tryLock()) {
+            return;
+        }
+        try {
+            if (longRtt == 0) {
+                shortRtt = rttNanos;
+                longRtt = rttNanos;
+                return;
+            }
+            shortRtt = shortRtt * (1 - SHORT_ALPHA) + rttNanos * SHORT_ALPHA;
+            longRtt = longRtt * (1 - LONG_ALPHA) + rttNanos * LONG_ALPHA;
+            // 负载降下来后长期RTT跟着快速回落，避免一直停留在过载时的水平
+            if (longRtt / shortRtt > 2) {
+                longRtt *= 0.95;
+            }
+
+            double current = limit;
+            // 并发数不到一半时限制不是瓶颈，不再增加
+            if (inflightAtRelease < current / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, longRtt / shortRtt));
+            double newLimit = current * gradient + Math.sqrt(current);
+            newLimit = current * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        } finally {
+            updateLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.support.limit;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应并发限制，按调用的RTT调整允许同时执行的数量
+ *
+ * @author shanhuiming
+ *
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface ConcurrencyLimit {
+
+    /**
+     * 默认（类名 + 方法名）
+     */
+    String name() default "";
+
+    /**
+     * 按接口路径区分（请求匹配的路径模式）
+     */
+    boolean limitWithUrl() default false;
+
+    /**
+     * 初始并发限制
+     */
+    int initialLimit() default 20;
+
+    /**
+     * 最小并发限制
+     */
+    int minLimit() default 1;
+
+    /**
+     * 最大并发限制
+     */
+    int maxLimit() default 500;
+
+    /**
+     * 超过限制时的等待时间（0表示直接拒绝）
+     */
+    long waitTime() default 0;
+
+    /**
+     * 时间单位
+     */
+    TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+}
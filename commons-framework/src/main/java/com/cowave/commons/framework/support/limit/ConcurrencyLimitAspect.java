@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.support.limit;
+
+import com.cowave.commons.client.http.asserts.HttpHintException;
+import com.cowave.commons.framework.access.Access;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.cowave.commons.client.http.constants.HttpCode.TOO_MANY_REQUESTS;
+
+/**
+ *
+ * @author shanhuiming
+ *
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ConcurrencyLimitAspect {
+
+    public static final String METRIC_LIMIT = "limit.concurrency.limit";
+
+    public static final String METRIC_INFLIGHT = "limit.concurrency.inflight";
+
+    public static final String METRIC_REJECTED = "limit.concurrency.rejected";
+
+    private final ConcurrentHashMap<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Pointcut("@annotation(com.cowave.commons.framework.support.limit.ConcurrencyLimit)")
+    public void pointCut() {
+
+    }
+
+    @Around("pointCut()")
+    public Object around(ProceedingJoinPoint point) throws Throwable {
+        MethodSignature signature = (MethodSignature) point.getSignature();
+        ConcurrencyLimit limit = signature.getMethod().getAnnotation(ConcurrencyLimit.class);
+        String name = limit.name();
+        if (StringUtils.isBlank(name)) {
+            String className = Optional.ofNullable(point.getTarget()).map(Object::getClass).map(Class::getSimpleName).orElse("");
+            String methodName = Optional.ofNullable(signature.getMethod()).map(Method::getName).orElse("");
+            name = className + "_" + methodName;
+        }
+        if (limit.limitWithUrl()) {
+            // 使用匹配的路径模式而不是原始url，避免路径参数导致限制器无限增长
+            HttpServletRequest request = Access.httpRequest();
+            Object pattern = request != null ? request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) : null;
+            if (pattern instanceof String url) {
+                name = name + ":" + url;
+            }
+        }
+
+        AdaptiveLimiter limiter = getLimiter(name, limit);
+        long start = limiter.tryAcquire(limit.waitTime(), limit.timeUnit());
+        if (start < 0) {
+            throw new HttpHintException(TOO_MANY_REQUESTS, "{frame.access.limit}");
+        }
+        // 业务提示异常（参数校验、权限等）说明调用本身正常完成，按成功采样；其它异常和超时按失败收缩限制
+        boolean success = false;
+        try {
+            Object result = point.proceed();
+            success = true;
+            return result;
+        } catch (HttpHintException e) {
+            success = true;
+            throw e;
+        } finally {
+            limiter.release(start, success);
+        }
+    }
+
+    private AdaptiveLimiter getLimiter(String name, ConcurrencyLimit limit) {
+        AdaptiveLimiter limiter = limiters.get(name);
+        if (limiter != null) {
+            return limiter;
+        }
+        return limiters.computeIfAbsent(name, k -> {
+            AdaptiveLimiter newLimiter = new AdaptiveLimiter(limit.initialLimit(), limit.minLimit(), limit.maxLimit());
+            MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+            if (meterRegistry != null) {
+                Gauge.builder(METRIC_LIMIT, newLimiter, AdaptiveLimiter::getLimit)
+                        .description("current adaptive concurrency limit").tag("name", k).register(meterRegistry);
+                Gauge.builder(METRIC_INFLIGHT, newLimiter, AdaptiveLimiter::getInflight)
+                        .description("calls in flight").tag("name", k).register(meterRegistry);
+                FunctionCounter.builder(METRIC_REJECTED, newLimiter, AdaptiveLimiter::getRejected)
+                        .description("calls rejected by concurrency limit").tag("name", k).register(meterRegistry);
+            }
+            return newLimiter;
+        });
+    }
+}
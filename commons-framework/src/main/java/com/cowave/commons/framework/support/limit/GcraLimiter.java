@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.support.limit;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GCRA限流（等价于令牌桶），状态只有一个理论到达时间(TAT)，通过CAS更新，不加锁
+ * <p> 每个许可间隔 period / limits，允许突发 limits 个许可，即任意 period 时长内最多通过 limits 个请求（空闲后的第一个period除外）
+ *
+ * @author shanhuiming
+ */
+public final class GcraLimiter {
+
+    // 许可的发放间隔(ns)
+    private final long intervalNanos;
+
+    // 允许提前的时长(ns)，决定突发数量
+    private final long toleranceNanos;
+
+    private final long periodNanos;
+
+    private final AtomicLong tat;
+
+    /**
+     * @param periodNanos 时间窗口(ns)
+     * @param limits      窗口内的许可数
+     */
+    public GcraLimiter(long periodNanos, double limits) {
+        this.periodNanos = Math.max(periodNanos, 1);
+        this.intervalNanos = Math.max((long) (this.periodNanos / Math.max(limits, Double.MIN_VALUE)), 1);
+        this.toleranceNanos = Math.max(this.periodNanos - intervalNanos, 0);
+        this.tat = new AtomicLong(System.nanoTime());
+    }
+
+    public static GcraLimiter perSecond(double permitsPerSecond) {
+        return new GcraLimiter(TimeUnit.SECONDS.toNanos(1), permitsPerSecond);
+    }
+
+    public boolean tryAcquire() {
+        return reserve(0) >= 0;
+    }
+
+    /**
+     * 在等待时间内获取许可
+     */
+    public boolean tryAcquire(long waitTime, TimeUnit timeUnit) {
+        long wait = reserve(Math.max(timeUnit.toNanos(waitTime), 0));
+        if (wait < 0) {
+            return false;
+        }
+        if (wait > 0) {
+            Uninterruptibles.sleepUninterruptibly(wait, TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * 阻塞直到获取许可
+     */
+    public void acquire() {
+        long wait = reserve(Long.MAX_VALUE);
+        if (wait > 0) {
+            Uninterruptibles.sleepUninterruptibly(wait, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 预占一个许可
+     *
+     * @return 需要等待的时长(ns)，超过maxWaitNanos时返回-1，并且不占用许可
+     */
+    public long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long base = current - now > 0 ? current : now;
+            long wait = base - toleranceNanos - now;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (tat.compareAndSet(current, base + intervalNanos)) {
+                return Math.max(wait, 0);
+            }
+        }
+    }
+
+    /**
+     * 下一个许可可用前需要等待的时长(ns)
+     */
+    public long retryAfterNanos() {
+        long now = System.nanoTime();
+        long current = tat.get();
+        long base = current - now > 0 ? current : now;
+        return Math.max(base - toleranceNanos - now, 0);
+    }
+
+    long periodNanos() {
+        return periodNanos;
+    }
+}
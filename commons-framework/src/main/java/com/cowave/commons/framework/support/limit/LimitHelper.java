@@ -9,10 +9,6 @@
  */
 package com.cowave.commons.framework.support.limit;
 
-import com.google.common.util.concurrent.RateLimiter;
-
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -20,14 +16,11 @@ import java.util.concurrent.TimeUnit;
  */
 public class LimitHelper {
 
-    private static final Map<String, RateLimiter> LIMITERS = new ConcurrentHashMap<>();
+    // 空闲10分钟后淘汰
+    private static final LimiterStore LIMITERS = new LimiterStore(10000, 600);
 
-    static RateLimiter getLimiter(String key, double permitsPerSecond) {
-        RateLimiter limiter = LIMITERS.get(key);
-        if (limiter != null) {
-            return limiter;
-        }
-        return LIMITERS.computeIfAbsent(key, k -> RateLimiter.create(permitsPerSecond));
+    static GcraLimiter getLimiter(String key, double permitsPerSecond) {
+        return LIMITERS.get(key, TimeUnit.SECONDS.toNanos(1), permitsPerSecond);
     }
 
     public static void acquire(String name, double permitsPerSecond) {
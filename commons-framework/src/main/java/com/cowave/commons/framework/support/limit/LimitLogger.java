@@ -13,60 +13,157 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.spi.LocationAwareLogger;
 
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
+ * 限制频率的日志
+ * <p> 调用方通过StackWalker获取（只遍历到第一个外部帧），每个调用点（类 + 方法）缓存自己的logger、限流器和被丢弃的计数；
+ * <p> 被丢弃的日志用LongAdder计数，后台每分钟为有丢弃的调用点输出一行汇总
  *
  * @author aKuang
  *
  */
 public class LimitLogger {
 
+    private static final String FQCN = LimitLogger.class.getName();
+
+    private static final long SUMMARY_INTERVAL = 60;
+
+    // 调用方就在LimitLogger的上一帧，只预取少量帧
+    private static final StackWalker WALKER = StackWalker.getInstance(Set.of(), 4);
+
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<String, CallSite>> CALL_SITES = new ConcurrentHashMap<>();
+
+    private static volatile ScheduledExecutorService summaryExecutor;
+
     public static void info(double secondRate, String format, Object... arguments) {
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-        if (stackTrace.length > 3) {
-            StackTraceElement caller = stackTrace[2];
-            String callerClass = caller.getClassName();
-            String callerMethod = caller.getMethodName();
-            if (LimitHelper.tryAcquire(callerClass + "." + callerMethod, secondRate)) {
-                Logger logger = LoggerFactory.getLogger(callerClass);
-                if (logger instanceof LocationAwareLogger locationLogger) {
-                    locationLogger.log(null, LimitLogger.class.getName(), LocationAwareLogger.INFO_INT, format, arguments, null);
-                } else {
-                    logger.info(format, arguments);
-                }
+        CallSite callSite = callSite(secondRate);
+        if (callSite != null && callSite.tryLog(LocationAwareLogger.INFO_INT)) {
+            if (callSite.logger instanceof LocationAwareLogger locationLogger) {
+                locationLogger.log(null, FQCN, LocationAwareLogger.INFO_INT, format, arguments, null);
+            } else {
+                callSite.logger.info(format, arguments);
             }
         }
     }
 
     public static void error(double secondRate, String format, Object... arguments) {
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-        if (stackTrace.length > 2) {
-            StackTraceElement caller = stackTrace[2];
-            String callerClass = caller.getClassName();
-            String callerMethod = caller.getMethodName();
-            if (LimitHelper.tryAcquire(callerClass + "." + callerMethod, secondRate)) {
-                Logger logger = LoggerFactory.getLogger(callerClass);
-                if (logger instanceof LocationAwareLogger locationLogger) {
-                    locationLogger.log(null, LimitLogger.class.getName(), LocationAwareLogger.ERROR_INT, format, arguments, null);
-                }else{
-                    logger.error(format, arguments);
-                }
+        CallSite callSite = callSite(secondRate);
+        if (callSite != null && callSite.tryLog(LocationAwareLogger.ERROR_INT)) {
+            if (callSite.logger instanceof LocationAwareLogger locationLogger) {
+                locationLogger.log(null, FQCN, LocationAwareLogger.ERROR_INT, format, arguments, null);
+            }else{
+                callSite.logger.error(format, arguments);
             }
         }
     }
 
     public static void error(double secondRate, Throwable t, String format, Object... arguments) {
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-        if (stackTrace.length > 2) {
-            StackTraceElement caller = stackTrace[2];
-            String callerClass = caller.getClassName();
-            String callerMethod = caller.getMethodName();
-            if (LimitHelper.tryAcquire(callerClass + "." + callerMethod, secondRate)) {
-                Logger logger = LoggerFactory.getLogger(callerClass);
-                if (logger instanceof LocationAwareLogger locationLogger) {
-                    locationLogger.log(null, LimitLogger.class.getName(), LocationAwareLogger.ERROR_INT, format, arguments, t);
-                }else{
-                    logger.error(format, t, arguments);
-                }
+        CallSite callSite = callSite(secondRate);
+        if (callSite != null && callSite.tryLog(LocationAwareLogger.ERROR_INT)) {
+            if (callSite.logger instanceof LocationAwareLogger locationLogger) {
+                locationLogger.log(null, FQCN, LocationAwareLogger.ERROR_INT, format, arguments, t);
+            }else{
+                callSite.logger.error(format, t, arguments);
+            }
+        }
+    }
+
+    private static CallSite callSite(double secondRate) {
+        Optional<StackWalker.StackFrame> caller = WALKER.walk(frames ->
+                frames.filter(frame -> !FQCN.equals(frame.getClassName())).findFirst());
+        if (caller.isEmpty()) {
+            return null;
+        }
+        String className = caller.get().getClassName();
+        String methodName = caller.get().getMethodName();
+        ConcurrentHashMap<String, CallSite> methods = CALL_SITES.get(className);
+        if (methods == null) {
+            methods = CALL_SITES.computeIfAbsent(className, k -> new ConcurrentHashMap<>());
+        }
+        CallSite callSite = methods.get(methodName);
+        if (callSite == null) {
+            callSite = methods.computeIfAbsent(methodName, k -> {
+                startSummary();
+                return new CallSite(className, methodName, secondRate);
+            });
+        }
+        return callSite;
+    }
+
+    private static void startSummary() {
+        if (summaryExecutor != null) {
+            return;
+        }
+        synchronized (LimitLogger.class) {
+            if (summaryExecutor == null) {
+                ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "limit-logger-summary");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                executor.scheduleWithFixedDelay(LimitLogger::summary, SUMMARY_INTERVAL, SUMMARY_INTERVAL, TimeUnit.SECONDS);
+                summaryExecutor = executor;
+            }
+        }
+    }
+
+    private static void summary() {
+        for (ConcurrentHashMap<String, CallSite> methods : CALL_SITES.values()) {
+            for (CallSite callSite : methods.values()) {
+                callSite.summary();
+            }
+        }
+    }
+
+    private static class CallSite {
+
+        private final Logger logger;
+
+        private final String methodName;
+
+        private final GcraLimiter limiter;
+
+        private final LongAdder suppressed = new LongAdder();
+
+        // 汇总周期内被丢弃日志的最高级别，汇总时重置
+        private final AtomicInteger suppressedLevel = new AtomicInteger();
+
+        CallSite(String className, String methodName, double secondRate) {
+            this.logger = LoggerFactory.getLogger(className);
+            this.methodName = methodName;
+            this.limiter = GcraLimiter.perSecond(secondRate);
+        }
+
+        boolean tryLog(int level) {
+            if (limiter.tryAcquire()) {
+                return true;
+            }
+            suppressed.increment();
+            if (level > suppressedLevel.get()) {
+                suppressedLevel.accumulateAndGet(level, Math::max);
+            }
+            return false;
+        }
+
+        void summary() {
+            int level = suppressedLevel.getAndSet(0);
+            long count = suppressed.sumThenReset();
+            if (count == 0) {
+                return;
+            }
+            String format = "suppressed {} messages of {}() in the last {}s";
+            if (level >= LocationAwareLogger.ERROR_INT) {
+                logger.error(format, count, methodName, SUMMARY_INTERVAL);
+            } else {
+                logger.info(format, count, methodName, SUMMARY_INTERVAL);
             }
         }
     }
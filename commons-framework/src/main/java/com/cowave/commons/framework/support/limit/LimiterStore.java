@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.support.limit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地限流器的存储，数量有界，空闲的限流器会被淘汰
+ * <p> 空闲时长至少保留一个限流窗口，淘汰时限流器的状态已经完全恢复，重新创建不会放过多余的请求
+ *
+ * @author shanhuiming
+ */
+public class LimiterStore {
+
+    private final Cache<String, GcraLimiter> limiters;
+
+    /**
+     * @param maximumSize 限流器数量上限
+     * @param idleSeconds 空闲多久后淘汰(s)
+     */
+    public LimiterStore(long maximumSize, long idleSeconds) {
+        long idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+        this.limiters = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, GcraLimiter>() {
+                    @Override
+                    public long expireAfterCreate(String key, GcraLimiter limiter, long currentTime) {
+                        return Math.max(idleNanos, limiter.periodNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, GcraLimiter limiter, long currentTime, long currentDuration) {
+                        return Math.max(idleNanos, limiter.periodNanos());
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, GcraLimiter limiter, long currentTime, long currentDuration) {
+                        return Math.max(idleNanos, limiter.periodNanos());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 获取限流器，不存在时创建
+     *
+     * @param periodNanos 时间窗口(ns)
+     * @param limits      窗口内的许可数
+     */
+    public GcraLimiter get(String key, long periodNanos, double limits) {
+        GcraLimiter limiter = limiters.getIfPresent(key);
+        if (limiter != null) {
+            return limiter;
+        }
+        return limiters.get(key, k -> new GcraLimiter(periodNanos, limits));
+    }
+
+    public long size() {
+        return limiters.estimatedSize();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 注解中SpEL表达式每次解析执行，与AccessExpressions缓存、编译后执行的耗时和分配对比
+ *
+ * @author shanhuiming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AccessExpressionsBenchmark {
+
+    private static final String TEMPLATE = "user-#{#user.name}-#{#id}";
+
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+
+    private final TemplateParserContext templateContext = new TemplateParserContext();
+
+    private final DefaultParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+
+    private final Object[] args = {new User("admin"), 1001L};
+
+    private Method method;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        method = AccessExpressionsBenchmark.class.getDeclaredMethod("sample", User.class, Long.class);
+    }
+
+    @Benchmark
+    public String parseEveryTime() {
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(null, method, args, parameterNames);
+        return parser.parseExpression(TEMPLATE, templateContext).getValue(context, String.class);
+    }
+
+    @Benchmark
+    public String accessExpressions() {
+        MethodBasedEvaluationContext context = AccessExpressions.context(method, args);
+        return AccessExpressions.template(TEMPLATE).getValue(context, String.class);
+    }
+
+    public static void sample(User user, Long id) {
+
+    }
+
+    public static class User {
+
+        private final String name;
+
+        public User(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AccessExpressionsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
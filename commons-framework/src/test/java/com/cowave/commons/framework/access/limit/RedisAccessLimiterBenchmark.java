@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.limit;
+
+import com.cowave.commons.framework.helper.redis.StringRedisHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 三种Redis限流算法单次判断的耗时对比，限制次数越大滑动窗口的ZSET越大（需要本地Docker启动Redis容器）
+ *
+ * @author shanhuiming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RedisAccessLimiterBenchmark {
+
+    @Param({"GCRA", "SLIDING_WINDOW", "LEASE"})
+    private LimitAlgorithm algorithm;
+
+    @Param({"100", "10000"})
+    private long limits;
+
+    private GenericContainer<?> redis;
+
+    private JedisConnectionFactory connectionFactory;
+
+    private AccessLimiter accessLimiter;
+
+    @Setup
+    public void setup() {
+        redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+        redis.start();
+
+        connectionFactory = new JedisConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        stringRedisTemplate.afterPropertiesSet();
+        StringRedisHelper stringRedisHelper = StringRedisHelper.newStringRedisHelper(stringRedisTemplate);
+
+        if (algorithm == LimitAlgorithm.LEASE) {
+            accessLimiter = new LeasedAccessLimiter(stringRedisHelper, 0.1, 100, 60);
+        } else {
+            accessLimiter = new RedisAccessLimiter(stringRedisHelper, algorithm);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (accessLimiter instanceof LeasedAccessLimiter leasedAccessLimiter) {
+            leasedAccessLimiter.shutdown();
+        }
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @Benchmark
+    public long tryThrough() {
+        return accessLimiter.tryThrough("benchmark:limit:/api/v1/test", 1000, limits);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RedisAccessLimiterBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.framework.access.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ * @author shanhuiming
+ *
+ */
+public class IgnoreUrlMatcherTest {
+
+    private static final String[] PATTERNS = {
+            "/a/**", "a/**", "/b", "/c/", "/d/*", "/e/**/f", "/g/*.html", "/h/{id}", "/i//**", "/j/k/**", "/l?", "m/n", "/"};
+
+    private static final String[] PATHS = {
+            "", "/", "//", "/a", "/a/", "/a/x", "/a//x", "//a/x", "/ab", "a", "a/x", "/b", "/b/", "//b", "/c", "/c/",
+            "/d", "/d/x", "/d/x/y", "/e/f", "/e/x/y/f", "/e/x", "/g/x.html", "/g/x.htm", "/h/1", "/h/1/2",
+            "/i", "/i/", "/i//x", "/i/x", "/j/k", "/j//k/x", "/j/k/x", "/lx", "/lxy", "m/n", "/m/n", "/x"};
+
+    /**
+     * 每个pattern单独以及全部一起，对每个路径的匹配结果与逐个使用AntPathRequestMatcher一致
+     */
+    @Test
+    public void testSameAsAntPathRequestMatcher() {
+        for (String pattern : PATTERNS) {
+            assertSame(new String[]{pattern});
+        }
+        assertSame(PATTERNS);
+    }
+
+    private void assertSame(String[] patterns) {
+        IgnoreUrlMatcher ignoreUrlMatcher = new IgnoreUrlMatcher(patterns, 16);
+        for (String path : PATHS) {
+            HttpServletRequest request = request(path);
+            boolean expected = false;
+            for (String pattern : patterns) {
+                if (new AntPathRequestMatcher(pattern).matches(request)) {
+                    expected = true;
+                    break;
+                }
+            }
+            assertEquals(expected, ignoreUrlMatcher.matches(request), "patterns=" + String.join(",", patterns) + ", path=" + path);
+        }
+    }
+
+    private static HttpServletRequest request(String servletPath) {
+        return (HttpServletRequest) Proxy.newProxyInstance(IgnoreUrlMatcherTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getServletPath" -> servletPath;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.tools.ids;
+
+import cn.hutool.core.lang.Assert;
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 固定长度的时间序列id：前缀 + 时间 + 后缀 + 序号，与 IdGenerator.generateIdWithDate 格式一致
+ * <p> 1.前缀 + 时间 + 后缀每秒只格式化一次，线程在自己的字符缓冲中写入序号，除了最后的String不再有分配；
+ * <p> 2.序号使用全局计数取模，连续indexLimit个id的序号互不重复（分段计数会让每段只能用到indexLimit/段数个序号）；
+ * <p> 时间格式精度不能超过秒
+ *
+ * @author shanhuiming
+ */
+public class DateIdGenerator {
+
+    private final String prefix;
+
+    private final String suffix;
+
+    private final DateTimeFormatter formatter;
+
+    private final int indexLimit;
+
+    private final int indexWidth;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private final ThreadLocal<Buffer> buffers;
+
+    private volatile Head head = new Head(-1, new char[0]);
+
+    /**
+     * @param prefix     id前缀
+     * @param suffix     id后缀
+     * @param dateFormat 时间格式
+     * @param indexLimit index上限
+     */
+    public DateIdGenerator(String prefix, String suffix, String dateFormat, int indexLimit) {
+        Assert.isTrue(StringUtils.isNotBlank(dateFormat), "dateFormat cannot be empty.");
+        Assert.isTrue(indexLimit > 0, "indexLimit must greater than 0.");
+        this.prefix = StringUtils.defaultString(prefix);
+        this.suffix = StringUtils.defaultString(suffix);
+        this.formatter = DateTimeFormatter.ofPattern(dateFormat).withZone(ZoneId.systemDefault());
+        this.indexLimit = indexLimit;
+        this.indexWidth = String.valueOf(indexLimit - 1).length();
+        this.buffers = ThreadLocal.withInitial(Buffer::new);
+    }
+
+    public String newId() {
+        long second = System.currentTimeMillis() / 1000;
+        Buffer buffer = buffers.get();
+        if (buffer.second != second) {
+            Head current = head(second);
+            int length = current.chars.length + indexWidth;
+            if (buffer.chars.length < length) {
+                buffer.chars = new char[length];
+            }
+            System.arraycopy(current.chars, 0, buffer.chars, 0, current.chars.length);
+            buffer.headLength = current.chars.length;
+            buffer.second = second;
+        }
+
+        int index = (int) (counter.getAndIncrement() % indexLimit);
+
+        char[] chars = buffer.chars;
+        int end = buffer.headLength + indexWidth;
+        for (int i = end - 1; i >= buffer.headLength; i--) {
+            chars[i] = (char) ('0' + index % 10);
+            index /= 10;
+        }
+        return new String(chars, 0, end);
+    }
+
+    private Head head(long second) {
+        Head current = head;
+        if (current.second != second) {
+            String date = formatter.format(Instant.ofEpochSecond(second));
+            current = new Head(second, (prefix + date + suffix).toCharArray());
+            head = current;
+        }
+        return current;
+    }
+
+    private static class Head {
+
+        private final long second;
+
+        private final char[] chars;
+
+        Head(long second, char[] chars) {
+            this.second = second;
+            this.chars = chars;
+        }
+    }
+
+    private static class Buffer {
+
+        private long second = -1;
+
+        private int headLength;
+
+        private char[] chars = new char[32];
+    }
+}
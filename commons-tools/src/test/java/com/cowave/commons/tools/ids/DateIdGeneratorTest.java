@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017～2025 Cowave All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.cowave.commons.tools.ids;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author shanhuiming
+ *
+ */
+public class DateIdGeneratorTest {
+
+    /**
+     * 多线程并发生成indexLimit个id，序号用满也不能重复
+     */
+    @Test
+    public void testConcurrentUnique() throws InterruptedException {
+        int indexLimit = 1000;
+        int threads = 8;
+        DateIdGenerator generator = new DateIdGenerator("108080", "", "yyyyMMddHHmmss", indexLimit);
+
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < indexLimit / threads; i++) {
+                    ids.add(generator.newId());
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(indexLimit, ids.size());
+    }
+
+    /**
+     * 序号按indexLimit - 1的位数补零
+     */
+    @Test
+    public void testIndexWidth() {
+        DateIdGenerator generator = new DateIdGenerator("P", "S", "yyyyMMddHHmmss", 1000);
+        String id = generator.newId();
+        assertEquals("P".length() + 14 + "S".length() + 3, id.length());
+        assertTrue(id.startsWith("P"));
+        assertTrue(id.endsWith("000"));
+    }
+}